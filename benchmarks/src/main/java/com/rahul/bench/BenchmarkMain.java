@@ -0,0 +1,54 @@
+package com.rahul.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH options, but unless told
+ * otherwise saves the results as JSON under benchmark-results/, named after the
+ * current git commit, so two commits can be compared with {@link CompareResults}.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws IOException, RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResult().hasValue() && !cmd.getResultFormat().hasValue()) {
+            Path file = Files.createDirectories(Paths.get("benchmark-results")).resolve(label() + ".json");
+            options.resultFormat(ResultFormatType.JSON).result(file.toString());
+            System.out.println("Results will be saved to " + file);
+        }
+        new Runner(options.build()).run();
+    }
+
+    /** The short hash of the checked-out commit, or a timestamp outside a git checkout. */
+    private static String label() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String hash = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (git.waitFor() == 0 && !hash.isEmpty()) return hash;
+        } catch (IOException e) { /* No git here */ }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+}
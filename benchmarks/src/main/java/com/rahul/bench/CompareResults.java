@@ -0,0 +1,70 @@
+package com.rahul.bench;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, e.g. of two commits, benchmark by benchmark.
+ * Usage: CompareResults &lt;baseline.json&gt; &lt;candidate.json&gt; [thresholdPercent]
+ * Exits with 1 if any score got worse by more than the threshold (default 10%).
+ */
+public final class CompareResults {
+    private CompareResults() {}
+
+    private record Score(double value, String unit, boolean higherIsBetter) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        Map<String, Score> base = load(args[0]), next = load(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : new TreeMap<>(next).entrySet()) {
+            Score before = base.get(e.getKey()), after = e.getValue();
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-90s %12.3f %s (new)%n", e.getKey(), after.value(), after.unit());
+                continue;
+            }
+            double change = (after.value() - before.value()) / before.value() * 100;
+            boolean worse = after.higherIsBetter() ? change < -threshold : change > threshold;
+            if (worse) regressions++;
+            System.out.printf(Locale.ROOT, "%-90s %12.3f -> %12.3f %s %+7.1f%%%s%n", e.getKey(),
+                    before.value(), after.value(), after.unit(), change, worse ? "  REGRESSION" : "");
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /** Primary and secondary (e.g. "files" counter) scores by "benchmark[params]:metric". */
+    private static Map<String, Score> load(String file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        JSONArray runs = new JSONArray(Files.readString(Paths.get(file), StandardCharsets.UTF_8));
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            boolean higherIsBetter = run.getString("mode").equals("thrpt");
+            StringBuilder key = new StringBuilder(run.getString("benchmark").replace("com.rahul.bench.", ""));
+            JSONObject params = run.optJSONObject("params");
+            if (params != null) key.append(new TreeMap<>(params.toMap()));
+            JSONObject primary = run.getJSONObject("primaryMetric");
+            scores.put(key.toString(), new Score(primary.getDouble("score"), primary.getString("scoreUnit"), higherIsBetter));
+            JSONObject secondary = run.optJSONObject("secondaryMetrics");
+            if (secondary != null) {
+                for (String name : secondary.keySet()) {
+                    JSONObject m = secondary.getJSONObject(name);
+                    scores.put(key + ":" + name, new Score(m.getDouble("score"), m.getString("scoreUnit"), higherIsBetter));
+                }
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,68 @@
+package com.rahul.bench;
+
+import com.rahul.NativeMetadataWriter;
+import com.rahul.SidecarMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producing one tagged output JPEG with the built-in writer: written tagged in a
+ * single pass ("direct") versus copied first and then patched in place.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CopyTagBenchmark {
+
+    @Param({"262144", "4194304"})
+    public int mediaBytes;
+
+    private final NativeMetadataWriter writer = new NativeMetadataWriter();
+    private final SidecarMetadata meta = new SidecarMetadata(Instant.ofEpochSecond(1_500_000_000L), true, 48.8583701, 2.2944813);
+    private Path dir, source, target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("takeout-copytag");
+        source = Files.write(dir.resolve("IMG_0001.jpg"), Fixtures.jpeg(mediaBytes));
+        target = dir.resolve("out.jpg");
+        if (!writer.write(source, target, meta)) throw new IllegalStateException("Fixture JPEG is not writable in place");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteTree(dir);
+    }
+
+    @Benchmark
+    public boolean direct() throws IOException {
+        return writer.write(source, target, meta);
+    }
+
+    @Benchmark
+    public boolean copyThenTag() throws IOException {
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return writer.write(target, target, meta);
+    }
+}
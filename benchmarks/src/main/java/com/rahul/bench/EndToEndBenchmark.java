@@ -0,0 +1,96 @@
+package com.rahul.bench;
+
+import com.rahul.DuplicateDetector;
+import com.rahul.FileCopier;
+import com.rahul.MetadataVerifier;
+import com.rahul.RestoreEngine;
+import com.rahul.RestoreOptions;
+import com.rahul.RunStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole restore of a synthetic Takeout with ExifTool replaced by {@link ExifToolStub}.
+ * The "files" counter is the end-to-end throughput in files per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    @Param({"2000"})
+    public int files;
+
+    /** Threads per stage; 0 lets the stages size themselves. */
+    @Param({"0", "1", "4"})
+    public int threads;
+
+    @Param({"true", "false"})
+    public boolean builtInWriter;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    /** Check existing tags before writing; the output is cleaned per run, so sources are checked. */
+    @Param({"OFF", "SKIP_CORRECT"})
+    public MetadataVerifier.Mode verify;
+
+    /** Files restored, reported per second next to the runs per second. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long files;
+    }
+
+    private Path root, input, output, exiftool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("takeout-e2e");
+        input = root.resolve("in");
+        output = root.resolve("out");
+        TakeoutGenerator.generate(input, Math.max(1, files / 500), Math.min(files, 500), 65536, 7);
+        exiftool = ExifToolStub.install(root.resolve("bin"));
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanOutput() throws IOException {
+        Fixtures.deleteTree(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteTree(root);
+    }
+
+    @Benchmark
+    public RunStats restore(Counters counters) throws Exception {
+        RestoreOptions options = new RestoreOptions(List.of(input), null, 1, 1, output, exiftool.toString(), threads, threads, threads, threads, virtualThreads, 0,
+                RestoreEngine.OutputMode.DIRECT, FileCopier.UnmodifiedMode.COPY, builtInWriter, false, true,
+                DuplicateDetector.Policy.OFF, verify, 0, 0);
+        RunStats stats = new RestoreEngine(options, line -> {}).run();
+        counters.files += stats.handled();
+        return stats;
+    }
+}
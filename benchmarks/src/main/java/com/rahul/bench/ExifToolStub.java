@@ -0,0 +1,74 @@
+package com.rahul.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands in for ExifTool in benchmarks: speaks the "-stay_open True -@ -" protocol,
+ * copies the file for "-o" and otherwise reports success without touching it, so
+ * end-to-end runs measure the restorer rather than ExifTool.
+ */
+public final class ExifToolStub {
+    private ExifToolStub() {}
+
+    /**
+     * Writes an executable launcher for the stub into {@code dir}, using this JVM and
+     * class path, and returns its path for use as the ExifTool executable.
+     */
+    public static Path install(Path dir) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        String script = "#!/bin/sh\nexec '" + java + "' -XX:TieredStopAtLevel=1 -Xshare:auto -cp '"
+                + System.getProperty("java.class.path") + "' " + ExifToolStub.class.getName() + " \"$@\"\n";
+        Path launcher = Files.createDirectories(dir).resolve("exiftool-stub");
+        Files.writeString(launcher, script, StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(launcher, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return launcher;
+    }
+
+    public static void main(String[] argv) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        List<String> args = new ArrayList<>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.startsWith("-execute")) {
+                out.print(execute(args));
+                out.print("{ready" + line.substring("-execute".length()) + "}\n");
+                out.flush();
+                args.clear();
+            } else if (line.equals("False") && !args.isEmpty() && args.get(args.size() - 1).equals("-stay_open")) {
+                return;
+            } else {
+                args.add(line);
+            }
+        }
+    }
+
+    private static String execute(List<String> args) throws IOException {
+        String target = null, source = null;
+        for (int i = 0; i < args.size(); i++) {
+            String a = args.get(i);
+            if (a.equals("-o") && i + 1 < args.size()) target = args.get(++i);
+            else if (a.equals("-charset") && i + 1 < args.size()) i++;
+            else if (!a.startsWith("-")) source = a;
+        }
+        if (source == null || !Files.exists(Paths.get(source))) {
+            return "Error: File not found - " + source + "\n    0 image files updated\n";
+        }
+        if (target != null) {
+            Files.copy(Paths.get(source), Paths.get(target), StandardCopyOption.REPLACE_EXISTING);
+            return "    1 image files created\n";
+        }
+        return "    1 image files updated\n";
+    }
+}
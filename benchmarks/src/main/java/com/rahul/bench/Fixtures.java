@@ -0,0 +1,121 @@
+package com.rahul.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/** Sidecar JSON and small media files in the shapes Google Takeout produces. */
+final class Fixtures {
+    private Fixtures() {}
+
+    /**
+     * A baseline JPEG whose EXIF block already holds the date and GPS tags, so the
+     * built-in writer can patch it in place; {@code scanBytes} pads the image data.
+     */
+    static byte[] jpeg(int scanBytes) {
+        // IFD0 at 8 (3 entries, ends 50), Exif IFD at 50 (2 entries, ends 80),
+        // GPS IFD at 80 (4 entries, ends 134), then three dates and two rationals.
+        ByteBuffer t = ByteBuffer.allocate(242).order(ByteOrder.LITTLE_ENDIAN);
+        t.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        t.putShort((short) 3);
+        entry(t, 0x0132, 2, 20, 134);
+        entry(t, 0x8769, 4, 1, 50);
+        entry(t, 0x8825, 4, 1, 80);
+        t.putInt(0);
+        t.putShort((short) 2);
+        entry(t, 0x9003, 2, 20, 154);
+        entry(t, 0x9004, 2, 20, 174);
+        t.putInt(0);
+        t.putShort((short) 4);
+        entry(t, 1, 2, 2, 'N');
+        entry(t, 2, 5, 3, 194);
+        entry(t, 3, 2, 2, 'E');
+        entry(t, 4, 5, 3, 218);
+        t.putInt(0);
+        for (int i = 0; i < 3; i++) t.put("2000:01:01 00:00:00\0".getBytes(StandardCharsets.US_ASCII));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(scanBytes + 300);
+        out.write(0xFF); out.write(0xD8);
+        out.write(0xFF); out.write(0xE1);
+        int length = 2 + 6 + t.capacity();
+        out.write(length >> 8); out.write(length & 0xFF);
+        out.writeBytes("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(t.array());
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2});
+        for (int i = 0; i < scanBytes; i++) out.write(i % 251 == 0xFF ? 0 : i % 251);
+        out.write(0xFF); out.write(0xD9);
+        return out.toByteArray();
+    }
+
+    private static void entry(ByteBuffer b, int tag, int type, int count, int value) {
+        b.putShort((short) tag).putShort((short) type).putInt(count).putInt(value);
+    }
+
+    /** A minimal MP4 with movie, track and media headers; {@code mdatBytes} pads the media data. */
+    static byte[] mp4(int mdatBytes) {
+        byte[] mvhd = box("mvhd", ByteBuffer.allocate(4 + 12 + 88).putInt(0).putInt(1).putInt(1).putInt(1000).array());
+        byte[] tkhd = box("tkhd", ByteBuffer.allocate(4 + 8 + 72).putInt(0).putInt(1).putInt(1).array());
+        byte[] mdhd = box("mdhd", ByteBuffer.allocate(4 + 16 + 12).putInt(1 << 24).putLong(1).putLong(1).array());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(mdatBytes + 400);
+        out.writeBytes(box("ftyp", "isom\0\0\0\0isom".getBytes(StandardCharsets.US_ASCII)));
+        out.writeBytes(box("mdat", new byte[mdatBytes]));
+        out.writeBytes(box("moov", concat(mvhd, box("trak", concat(tkhd, box("mdia", mdhd))))));
+        return out.toByteArray();
+    }
+
+    /** A 1x1 PNG; the built-in writer does not handle PNG, so these always go to ExifTool. */
+    static byte[] png() {
+        return new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+                0, 0, 0, 13, 'I', 'H', 'D', 'R', 0, 0, 0, 1, 0, 0, 0, 1, 8, 0, 0, 0, 0, 0x3A, 0x7E, (byte) 0x9B, 0x55,
+                0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82};
+    }
+
+    private static byte[] box(String type, byte[] payload) {
+        return concat(ByteBuffer.allocate(8).putInt(8 + payload.length).put(type.getBytes(StandardCharsets.US_ASCII)).array(), payload);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = new byte[a.length + b.length];
+        System.arraycopy(a, 0, r, 0, a.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    /** A sidecar for the {@code n}-th synthetic photo; {@code shape} is "photo" or "shared". */
+    static String sidecar(String shape, int n) {
+        long taken = 1_500_000_000L + n * 3_600L;
+        String people = "shared".equals(shape)
+                ? "  \"people\": [{\"name\": \"Alice\"}, {\"name\": \"Bob\"}, {\"name\": \"Carol \\\"CJ\\\" Jones\"}],\n"
+                  + "  \"sharedAlbumComments\": [{\"text\": \"Nice one \\u263A\", \"creationTime\": {\"timestamp\": \"" + taken + "\"}}],\n"
+                : "";
+        String description = "shared".equals(shape) ? "Sunset over the bay, taken from the pier near the old lighthouse." : "";
+        return "{\n"
+                + "  \"title\": \"IMG_" + (1000 + n) + ".JPG\",\n"
+                + "  \"description\": \"" + description + "\",\n"
+                + "  \"imageViews\": \"" + (n % 17) + "\",\n"
+                + "  \"creationTime\": {\n    \"timestamp\": \"" + (taken + 86_400) + "\",\n    \"formatted\": \"Jul 15, 2017, 2:40:00 AM UTC\"\n  },\n"
+                + "  \"photoTakenTime\": {\n    \"timestamp\": \"" + taken + "\",\n    \"formatted\": \"Jul 14, 2017, 2:40:00 AM UTC\"\n  },\n"
+                + "  \"geoData\": {\n    \"latitude\": 48.8583701,\n    \"longitude\": 2.2944813,\n    \"altitude\": 35.0,\n"
+                + "    \"latitudeSpan\": 0.0,\n    \"longitudeSpan\": 0.0\n  },\n"
+                + "  \"geoDataExif\": {\n    \"latitude\": 48.8583701,\n    \"longitude\": 2.2944813,\n    \"altitude\": 35.0,\n"
+                + "    \"latitudeSpan\": 0.0,\n    \"longitudeSpan\": 0.0\n  },\n"
+                + people
+                + "  \"url\": \"https://photos.google.com/photo/AF1QipN" + Integer.toHexString(n * 7919) + "\",\n"
+                + "  \"googlePhotosOrigin\": {\n    \"mobileUpload\": {\n      \"deviceType\": \"ANDROID_PHONE\"\n    }\n  }\n"
+                + "}\n";
+    }
+
+    /** Deletes a folder and everything in it, if it exists. */
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.rahul.bench;
+
+import com.rahul.SidecarIndexCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sidecar matching for one media file in album folders of different sizes, with the
+ * directory index already shared ("cached") and with a fresh scan per file ("scan").
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int dirSize;
+
+    private Path root;
+    private List<Path> media;
+    private SidecarIndexCache cache;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("takeout-match");
+        media = TakeoutGenerator.generate(root, 1, dirSize, 16, 42).media();
+        cache = new SidecarIndexCache();
+        cache.retain(media.get(0).getParent());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Fixtures.deleteTree(root);
+    }
+
+    private Path nextFile() {
+        Path file = media.get(next);
+        next = (next + 1) % media.size();
+        return file;
+    }
+
+    @Benchmark
+    public Path cached() throws IOException {
+        return cache.findMatchingJson(nextFile());
+    }
+
+    @Benchmark
+    public Path scan() throws IOException {
+        return new SidecarIndexCache().findMatchingJson(nextFile());
+    }
+}
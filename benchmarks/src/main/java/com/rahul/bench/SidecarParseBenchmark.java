@@ -0,0 +1,63 @@
+package com.rahul.bench;
+
+import com.rahul.SidecarJsonExtractor;
+import com.rahul.SidecarMetadata;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the byte-level sidecar extractor with the org.json tree the restorer used
+ * before. Both start from the raw file bytes, as read from disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SidecarParseBenchmark {
+
+    /** "photo": a typical photo sidecar; "shared": one with people and a long description. */
+    @Param({"photo", "shared"})
+    public String shape;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        json = Fixtures.sidecar(shape, 0).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public SidecarMetadata extractor() {
+        return SidecarJsonExtractor.extract(json);
+    }
+
+    @Benchmark
+    public SidecarMetadata orgJson() {
+        JSONObject root = new JSONObject(new String(json));
+        String ts = root.optJSONObject("photoTakenTime").optString("timestamp",
+                root.optJSONObject("creationTime").optString("timestamp", null));
+        if (ts == null) return null;
+        Instant instant = Instant.ofEpochSecond(Long.parseLong(ts));
+        JSONObject geo = root.optJSONObject("geoData");
+        if (geo != null && geo.optDouble("latitude", 0.0) != 0.0) {
+            return new SidecarMetadata(instant, true, geo.getDouble("latitude"), geo.getDouble("longitude"));
+        }
+        return new SidecarMetadata(instant, false, 0.0, 0.0);
+    }
+}
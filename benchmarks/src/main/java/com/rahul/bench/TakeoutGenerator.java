@@ -0,0 +1,112 @@
+package com.rahul.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic Google Takeout tree: album folders of JPEG, MP4 and PNG files
+ * with sidecars named the ways real exports name them. Per album, roughly:
+ * <ul>
+ *   <li>55% plain pairs ("IMG_0001.jpg" + "IMG_0001.jpg.json")</li>
+ *   <li>10% long names whose sidecar is truncated to 46 characters</li>
+ *   <li>10% "supplemental-metadata" sidecars, some of them truncated</li>
+ *   <li>10% "(1)" duplicates ("IMG_0001(1).jpg" + "IMG_0001.jpg(1).json")</li>
+ *   <li>5% "-edited" copies sharing the original's sidecar</li>
+ *   <li>10% media without any sidecar</li>
+ * </ul>
+ * The same seed always produces the same tree.
+ */
+public final class TakeoutGenerator {
+    private static final int TRUNCATION = 46;
+
+    /** What was written: the root folder, every media file and the number of sidecars. */
+    public record Tree(Path root, List<Path> media, int sidecars) {}
+
+    private final Random random;
+    private final byte[] jpeg, mp4, png;
+    private final List<Path> media = new ArrayList<>();
+    private int sidecars, counter;
+
+    private TakeoutGenerator(long seed, int mediaBytes) {
+        random = new Random(seed);
+        jpeg = Fixtures.jpeg(mediaBytes);
+        mp4 = Fixtures.mp4(mediaBytes);
+        png = Fixtures.png();
+    }
+
+    /** Creates {@code albums} folders of {@code filesPerAlbum} media files each under {@code root}. */
+    public static Tree generate(Path root, int albums, int filesPerAlbum, int mediaBytes, long seed) throws IOException {
+        TakeoutGenerator g = new TakeoutGenerator(seed, mediaBytes);
+        for (int a = 0; a < albums; a++) {
+            Path album = Files.createDirectories(root.resolve("Takeout/Google Photos/Album " + a));
+            for (int i = 0; i < filesPerAlbum; ) i += g.writeOne(album, filesPerAlbum - i);
+        }
+        return new Tree(root, g.media, g.sidecars);
+    }
+
+    /** Writes one case into {@code dir}; returns the number of media files it took (at most {@code room}). */
+    private int writeOne(Path dir, int room) throws IOException {
+        int n = ++counter;
+        String ext = switch (random.nextInt(10)) {
+            case 0, 1 -> ".mp4";
+            case 2 -> ".png";
+            default -> ".jpg";
+        };
+        String name = String.format("IMG_%06d%s", n, ext);
+        int kind = random.nextInt(100);
+        if (kind < 55) {
+            media(dir, name);
+            sidecar(dir, name + ".json", n);
+        } else if (kind < 65) {
+            String longName = String.format("PXL_%06d_holiday_at_the_lake_with_the_whole_family%s", n, ext);
+            media(dir, longName);
+            sidecar(dir, (longName + ".json").substring(0, TRUNCATION) + ".json", n);
+        } else if (kind < 75) {
+            media(dir, name);
+            String suffix = random.nextBoolean() ? ".supplemental-metadata" : ".supplemental-met";
+            sidecar(dir, name + suffix + ".json", n);
+        } else if (kind < 85 && room >= 2) {
+            String numbered = String.format("IMG_%06d(1)%s", n, ext);
+            media(dir, name);
+            sidecar(dir, name + ".json", n);
+            media(dir, numbered);
+            sidecar(dir, name + "(1).json", n + 1);
+            return 2;
+        } else if (kind < 90 && room >= 2) {
+            media(dir, name);
+            sidecar(dir, name + ".json", n);
+            media(dir, String.format("IMG_%06d-edited%s", n, ext));
+            return 2;
+        } else {
+            media(dir, name);
+        }
+        return 1;
+    }
+
+    private void media(Path dir, String name) throws IOException {
+        byte[] data = name.endsWith(".mp4") ? mp4 : name.endsWith(".png") ? png : jpeg;
+        media.add(Files.write(dir.resolve(name), data));
+    }
+
+    private void sidecar(Path dir, String name, int n) throws IOException {
+        Files.writeString(dir.resolve(name), Fixtures.sidecar(n % 7 == 0 ? "shared" : "photo", n), StandardCharsets.UTF_8);
+        sidecars++;
+    }
+
+    /** Usage: TakeoutGenerator &lt;dir&gt; &lt;albums&gt; &lt;filesPerAlbum&gt; [mediaBytes] [seed] */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: TakeoutGenerator <dir> <albums> <filesPerAlbum> [mediaBytes] [seed]");
+            System.exit(2);
+        }
+        Tree tree = generate(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                args.length > 3 ? Integer.parseInt(args[3]) : 4096, args.length > 4 ? Long.parseLong(args[4]) : 1L);
+        System.out.println("Wrote " + tree.media().size() + " media files and " + tree.sidecars() + " sidecars to " + tree.root());
+    }
+}
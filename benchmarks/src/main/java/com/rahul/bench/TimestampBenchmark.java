@@ -0,0 +1,41 @@
+package com.rahul.bench;
+
+import com.rahul.SidecarMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/** Formatting a sidecar timestamp as an EXIF date string, once per tagged file. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimestampBenchmark {
+    private final SidecarMetadata[] metadata = new SidecarMetadata[1024];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < metadata.length; i++) {
+            metadata[i] = new SidecarMetadata(Instant.ofEpochSecond(1_000_000_000L + i * 86_461L), false, 0.0, 0.0);
+        }
+    }
+
+    @Benchmark
+    public String exifDate() {
+        next = (next + 1) & (metadata.length - 1);
+        return metadata[next].exifDate();
+    }
+}
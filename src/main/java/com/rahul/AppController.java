@@ -1,7 +1,12 @@
 package com.rahul;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.prefs.Preferences;
 
 /**
@@ -13,6 +18,15 @@ public class AppController {
     private ProcessingTask currentTask;
     private final Preferences prefs;
     private static final String EXIFTOOL_PATH_KEY = "exiftoolPath";
+    private static final String OUTPUT_MODE_KEY = "outputMode";
+    private static final String UNMODIFIED_MODE_KEY = "unmodifiedMode";
+    private static final String BUILT_IN_WRITER_KEY = "builtInWriter";
+    private static final String VERIFY_COPIES_KEY = "verifyCopies";
+    private static final String MATCH_THREADS_KEY = "matchThreads";
+    private static final String COPY_THREADS_KEY = "copyThreads";
+    private static final String TAG_THREADS_KEY = "tagThreads";
+    private static final String VIRTUAL_THREADS_KEY = "virtualThreads";
+    private static final String IO_PER_DEVICE_KEY = "ioPerDevice";
 
     public AppController(AppView view) {
         this.view = view;
@@ -23,14 +37,34 @@ public class AppController {
 
     private void loadSettings() {
         view.exiftoolField.setText(prefs.get(EXIFTOOL_PATH_KEY, ""));
+        view.builtInWriterCheckBox.setSelected(prefs.getBoolean(BUILT_IN_WRITER_KEY, true));
+        view.verifyCopiesCheckBox.setSelected(prefs.getBoolean(VERIFY_COPIES_KEY, true));
+        view.matchThreadsComboBox.setSelectedItem(prefs.get(MATCH_THREADS_KEY, AppView.AUTO_THREADS));
+        view.copyThreadsComboBox.setSelectedItem(prefs.get(COPY_THREADS_KEY, AppView.AUTO_THREADS));
+        view.tagThreadsComboBox.setSelectedItem(prefs.get(TAG_THREADS_KEY, AppView.AUTO_THREADS));
+        view.virtualThreadsCheckBox.setSelected(prefs.getBoolean(VIRTUAL_THREADS_KEY, false));
+        view.ioPerDeviceComboBox.setSelectedItem(prefs.get(IO_PER_DEVICE_KEY, AppView.AUTO_THREADS));
+        try {
+            view.outputModeComboBox.setSelectedItem(RestoreEngine.OutputMode.valueOf(prefs.get(OUTPUT_MODE_KEY, "DIRECT")));
+            view.unmodifiedModeComboBox.setSelectedItem(FileCopier.UnmodifiedMode.valueOf(prefs.get(UNMODIFIED_MODE_KEY, "COPY")));
+        } catch (IllegalArgumentException e) { /* Stale preference, keep defaults */ }
     }
 
     private void saveSettings() {
         prefs.put(EXIFTOOL_PATH_KEY, view.exiftoolField.getText());
+        prefs.put(OUTPUT_MODE_KEY, ((RestoreEngine.OutputMode) view.outputModeComboBox.getSelectedItem()).name());
+        prefs.put(UNMODIFIED_MODE_KEY, ((FileCopier.UnmodifiedMode) view.unmodifiedModeComboBox.getSelectedItem()).name());
+        prefs.putBoolean(BUILT_IN_WRITER_KEY, view.builtInWriterCheckBox.isSelected());
+        prefs.putBoolean(VERIFY_COPIES_KEY, view.verifyCopiesCheckBox.isSelected());
+        prefs.put(MATCH_THREADS_KEY, String.valueOf(view.matchThreadsComboBox.getSelectedItem()));
+        prefs.put(COPY_THREADS_KEY, String.valueOf(view.copyThreadsComboBox.getSelectedItem()));
+        prefs.put(TAG_THREADS_KEY, String.valueOf(view.tagThreadsComboBox.getSelectedItem()));
+        prefs.putBoolean(VIRTUAL_THREADS_KEY, view.virtualThreadsCheckBox.isSelected());
+        prefs.put(IO_PER_DEVICE_KEY, String.valueOf(view.ioPerDeviceComboBox.getSelectedItem()));
     }
 
     private void attachListeners() {
-        view.browseInputBtn.addActionListener(e -> chooseFolder(view.inputField));
+        view.browseInputBtn.addActionListener(e -> chooseInput(view.inputField));
         view.browseOutputBtn.addActionListener(e -> chooseFolder(view.outputField));
         view.browseExiftoolBtn.addActionListener(e -> chooseFile(view.exiftoolField));
         view.startBtn.addActionListener(e -> startProcessing());
@@ -46,6 +80,22 @@ public class AppController {
         }
     }
 
+    private void chooseInput(JTextField field) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setFileFilter(new FileNameExtensionFilter("Takeout folder or archive (.zip, .tgz)", "zip", "tgz", "gz"));
+        chooser.setAcceptAllFileFilterUsed(true);
+        chooser.setMultiSelectionEnabled(true);
+        if (chooser.showOpenDialog(view) == JFileChooser.APPROVE_OPTION) {
+            // Several folders, e.g. on different disks, are listed like a search path.
+            StringBuilder paths = new StringBuilder();
+            for (File f : chooser.getSelectedFiles()) {
+                paths.append(paths.isEmpty() ? "" : File.pathSeparator).append(f.getAbsolutePath());
+            }
+            field.setText(paths.toString());
+        }
+    }
+
     private void chooseFile(JTextField field) {
         JFileChooser chooser = new JFileChooser();
         chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
@@ -64,19 +114,58 @@ public class AppController {
             return;
         }
 
+        List<Path> inputs = new ArrayList<>();
+        for (String part : inputPath.split(File.pathSeparator)) {
+            if (!part.isBlank()) inputs.add(Paths.get(part.trim()));
+        }
+        if (inputs.size() > 1 && inputs.stream().anyMatch(TakeoutArchive::isArchive)) {
+            JOptionPane.showMessageDialog(view, "An archive can only be restored on its own, not together with other inputs.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         if (!new File(exiftoolPath).exists()) {
             JOptionPane.showMessageDialog(view, "ExifTool executable not found at the specified path.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        int matchThreads = threads(view.matchThreadsComboBox), copyThreads = threads(view.copyThreadsComboBox),
+                tagThreads = threads(view.tagThreadsComboBox);
+        if (matchThreads < 0 || copyThreads < 0 || tagThreads < 0) {
+            JOptionPane.showMessageDialog(view, "Threads must be \"" + AppView.AUTO_THREADS + "\" or a number from 1 to 256.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int ioPerDevice = threads(view.ioPerDeviceComboBox);
+        if (ioPerDevice < 0) {
+            JOptionPane.showMessageDialog(view, "Operations per disk must be \"" + AppView.AUTO_THREADS + "\" or a number from 1 to 256.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         saveSettings();
         view.setButtonsEnabled(false);
-        view.logArea.setText("");
+        view.logModel.clear();
         PowerManager.PostAction action = (PowerManager.PostAction) view.postActionComboBox.getSelectedItem();
-        currentTask = new ProcessingTask(inputPath, outputPath, exiftoolPath, view, action);
+        RestoreEngine.OutputMode outputMode = (RestoreEngine.OutputMode) view.outputModeComboBox.getSelectedItem();
+        FileCopier.UnmodifiedMode unmodifiedMode = (FileCopier.UnmodifiedMode) view.unmodifiedModeComboBox.getSelectedItem();
+        RestoreOptions options = new RestoreOptions(List.copyOf(inputs), null, 1, 1, Paths.get(outputPath), exiftoolPath,
+                matchThreads, copyThreads, tagThreads, 0, view.virtualThreadsCheckBox.isSelected(), ioPerDevice, outputMode, unmodifiedMode,
+                view.builtInWriterCheckBox.isSelected(), view.resumeCheckBox.isSelected(), view.verifyCopiesCheckBox.isSelected(),
+                (DuplicateDetector.Policy) view.duplicatePolicyComboBox.getSelectedItem(),
+                (MetadataVerifier.Mode) view.verifyModeComboBox.getSelectedItem(),
+                view.metricsCheckBox.isSelected() ? AppView.METRICS_PORT : 0, view.metricsCheckBox.isSelected() ? 30 : 0);
+        currentTask = new ProcessingTask(options, view, action);
         currentTask.execute();
     }
 
+    /** The thread or operation count chosen in {@code box}: 0 for automatic, -1 if it is not valid. */
+    private static int threads(JComboBox<String> box) {
+        String value = String.valueOf(box.getSelectedItem()).trim();
+        if (value.equalsIgnoreCase(AppView.AUTO_THREADS)) return 0;
+        try {
+            int n = Integer.parseInt(value);
+            return n >= 1 && n <= 256 ? n : -1;
+        } catch (NumberFormatException e) { return -1; }
+    }
+
     private void togglePause() {
         if (currentTask != null) {
             currentTask.setPaused(!currentTask.isPaused());
@@ -86,7 +175,7 @@ public class AppController {
 
     private void cancelProcessing() {
         if (currentTask != null) {
-            currentTask.cancel(true);
+            currentTask.stop();
         }
     }
 }
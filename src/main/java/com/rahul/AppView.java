@@ -1,19 +1,36 @@
 package com.rahul;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.io.File;
 
 /**
  * The main GUI window for the application (the "View" in MVC).
  * Contains all UI components but has no application logic.
  */
 public class AppView extends JFrame {
+    static final int METRICS_PORT = 9464;
     JTextField inputField, outputField, exiftoolField;
     JButton browseInputBtn, browseOutputBtn, browseExiftoolBtn, startBtn, pauseBtn, cancelBtn;
     JProgressBar progressBar;
     JLabel statusLabel;
-    JTextArea logArea;
+    final LogModel logModel = new LogModel();
+    JList<String> logList;
+    JScrollPane logScrollPane;
+    JComboBox<LogModel.Level> logLevelComboBox;
     JComboBox<PowerManager.PostAction> postActionComboBox;
+    JComboBox<RestoreEngine.OutputMode> outputModeComboBox;
+    JComboBox<FileCopier.UnmodifiedMode> unmodifiedModeComboBox;
+    JCheckBox builtInWriterCheckBox, resumeCheckBox, verifyCopiesCheckBox;
+    JComboBox<DuplicateDetector.Policy> duplicatePolicyComboBox;
+    JComboBox<MetadataVerifier.Mode> verifyModeComboBox;
+    JCheckBox metricsCheckBox;
+    JComboBox<String> matchThreadsComboBox, copyThreadsComboBox, tagThreadsComboBox, ioPerDeviceComboBox;
+    JCheckBox virtualThreadsCheckBox;
+    final DefaultTableModel stageTableModel = new DefaultTableModel(new Object[]{"Stage", "Files/s", "p50", "p99", "Count"}, 0) {
+        @Override public boolean isCellEditable(int row, int column) { return false; }
+    };
 
     public AppView() {
         setTitle("Google Takeout Metadata Restorer");
@@ -33,6 +50,7 @@ public class AppView extends JFrame {
         cGbc.fill = GridBagConstraints.HORIZONTAL;
 
         inputField = new JTextField(40);
+        inputField.setToolTipText("Several folders, e.g. on different disks, can be given separated by \"" + File.pathSeparator + "\"");
         outputField = new JTextField(40);
         exiftoolField = new JTextField(40);
         browseInputBtn = new JButton("Browse...");
@@ -40,7 +58,7 @@ public class AppView extends JFrame {
         browseExiftoolBtn = new JButton("Browse...");
 
         cGbc.gridx = 0; cGbc.gridy = 0;
-        configPanel.add(new JLabel("Takeout Folder:"), cGbc);
+        configPanel.add(new JLabel("Takeout Folder / Archive:"), cGbc);
         cGbc.gridx = 1; cGbc.weightx = 1;
         configPanel.add(inputField, cGbc);
         cGbc.gridx = 2; cGbc.weightx = 0;
@@ -60,6 +78,71 @@ public class AppView extends JFrame {
         cGbc.gridx = 2;
         configPanel.add(browseExiftoolBtn, cGbc);
 
+        outputModeComboBox = new JComboBox<>(RestoreEngine.OutputMode.values());
+        unmodifiedModeComboBox = new JComboBox<>(FileCopier.UnmodifiedMode.values());
+        JPanel modesPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        modesPanel.add(outputModeComboBox);
+        modesPanel.add(new JLabel("Files without JSON:"));
+        modesPanel.add(unmodifiedModeComboBox);
+        builtInWriterCheckBox = new JCheckBox("Built-in writer for JPEG/HEIC/MP4", true);
+        resumeCheckBox = new JCheckBox("Skip files done in an earlier run", true);
+        verifyCopiesCheckBox = new JCheckBox("Verify copies", true);
+        verifyCopiesCheckBox.setToolTipText("Read every copy back and compare its checksum with the original"
+                + " (usually from the memory cache, so it checks the copy rather than the disk)");
+        JPanel optionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        optionsPanel.add(builtInWriterCheckBox);
+        optionsPanel.add(resumeCheckBox);
+        optionsPanel.add(verifyCopiesCheckBox);
+        duplicatePolicyComboBox = new JComboBox<>(DuplicateDetector.Policy.values());
+        optionsPanel.add(new JLabel("Duplicates:"));
+        optionsPanel.add(duplicatePolicyComboBox);
+        verifyModeComboBox = new JComboBox<>(MetadataVerifier.Mode.values());
+        verifyModeComboBox.setToolTipText("Check the date and GPS a file already has before writing them");
+        optionsPanel.add(verifyModeComboBox);
+        metricsCheckBox = new JCheckBox("Metrics on port " + METRICS_PORT, false);
+        metricsCheckBox.setToolTipText("Serves Prometheus metrics on http://127.0.0.1:" + METRICS_PORT
+                + "/metrics and writes " + RunStats.SNAPSHOT_NAME + " to the output folder");
+        optionsPanel.add(metricsCheckBox);
+
+        // "Auto" lets the stage size itself while running; any number fixes it.
+        matchThreadsComboBox = threadsComboBox();
+        copyThreadsComboBox = threadsComboBox();
+        tagThreadsComboBox = threadsComboBox();
+        JPanel threadsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        threadsPanel.add(new JLabel("Match:"));
+        threadsPanel.add(matchThreadsComboBox);
+        threadsPanel.add(new JLabel("Copy:"));
+        threadsPanel.add(copyThreadsComboBox);
+        threadsPanel.add(new JLabel("Tag:"));
+        threadsPanel.add(tagThreadsComboBox);
+        virtualThreadsCheckBox = new JCheckBox("Virtual threads", false);
+        threadsPanel.add(virtualThreadsCheckBox);
+        // "Auto" goes by the kind of disk; a number is the same for every disk.
+        ioPerDeviceComboBox = new JComboBox<>(new String[]{AUTO_THREADS, "1", "2", "4", "8", "16", "64"});
+        ioPerDeviceComboBox.setEditable(true);
+        ioPerDeviceComboBox.setPrototypeDisplayValue("Auto ");
+        ioPerDeviceComboBox.setToolTipText("File operations in flight per disk");
+        threadsPanel.add(new JLabel("Per disk:"));
+        threadsPanel.add(ioPerDeviceComboBox);
+
+        cGbc.gridx = 0; cGbc.gridy = 3;
+        configPanel.add(new JLabel("Output Mode:"), cGbc);
+        cGbc.gridx = 1; cGbc.gridwidth = 2;
+        configPanel.add(modesPanel, cGbc);
+        cGbc.gridwidth = 1;
+
+        cGbc.gridx = 0; cGbc.gridy = 4;
+        configPanel.add(new JLabel("Options:"), cGbc);
+        cGbc.gridx = 1; cGbc.gridwidth = 2;
+        configPanel.add(optionsPanel, cGbc);
+        cGbc.gridwidth = 1;
+
+        cGbc.gridx = 0; cGbc.gridy = 5;
+        configPanel.add(new JLabel("Threads:"), cGbc);
+        cGbc.gridx = 1; cGbc.gridwidth = 2;
+        configPanel.add(threadsPanel, cGbc);
+        cGbc.gridwidth = 1;
+
         JPanel controlsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         startBtn = new JButton("Start");
         pauseBtn = new JButton("Pause");
@@ -82,11 +165,27 @@ public class AppView extends JFrame {
         progressPanel.add(progressBar, BorderLayout.CENTER);
         progressPanel.add(statusLabel, BorderLayout.SOUTH);
 
-        logArea = new JTextArea();
-        logArea.setEditable(false);
-        logArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane logScrollPane = new JScrollPane(logArea);
-        logScrollPane.setBorder(BorderFactory.createTitledBorder("Log"));
+        // A JList only renders the visible rows; fixed cell sizes mean it never has to
+        // measure the whole log either. Longer lines are in the log file in full.
+        logList = new JList<>(logModel);
+        logList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        logList.setPrototypeCellValue("INFO: Processed IMG_0000.JPG");
+        logList.setFixedCellWidth(1600);
+        logScrollPane = new JScrollPane(logList);
+        logLevelComboBox = new JComboBox<>(LogModel.Level.values());
+        logLevelComboBox.addActionListener(e -> logModel.setMinLevel((LogModel.Level) logLevelComboBox.getSelectedItem()));
+        JPanel logFilterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        logFilterPanel.add(new JLabel("Show:"));
+        logFilterPanel.add(logLevelComboBox);
+        JPanel logPanel = new JPanel(new BorderLayout(5, 5));
+        logPanel.add(logFilterPanel, BorderLayout.NORTH);
+        logPanel.add(logScrollPane, BorderLayout.CENTER);
+
+        JTable stageTable = new JTable(stageTableModel);
+        stageTable.setFillsViewportHeight(true);
+        JTabbedPane outputTabs = new JTabbedPane();
+        outputTabs.addTab("Log", logPanel);
+        outputTabs.addTab("Stages", new JScrollPane(stageTable));
 
         gbc.gridx = 0; gbc.gridy = 0; gbc.weightx = 1;
         add(configPanel, gbc);
@@ -95,7 +194,15 @@ public class AppView extends JFrame {
         gbc.gridy = 2; gbc.insets = new Insets(10, 5, 10, 5);
         add(progressPanel, gbc);
         gbc.gridy = 3; gbc.weighty = 1; gbc.fill = GridBagConstraints.BOTH;
-        add(logScrollPane, gbc);
+        add(outputTabs, gbc);
+    }
+
+    /** Adds lines to the log, following the newest line unless the user has scrolled up. */
+    public void appendLog(java.util.List<String> lines) {
+        JScrollBar bar = logScrollPane.getVerticalScrollBar();
+        boolean atBottom = bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - logList.getFixedCellHeight();
+        logModel.append(lines);
+        if (atBottom && logModel.getSize() > 0) logList.ensureIndexIsVisible(logModel.getSize() - 1);
     }
 
     public void setButtonsEnabled(boolean enabled) {
@@ -104,7 +211,29 @@ public class AppView extends JFrame {
         browseOutputBtn.setEnabled(enabled);
         browseExiftoolBtn.setEnabled(enabled);
         postActionComboBox.setEnabled(enabled);
+        outputModeComboBox.setEnabled(enabled);
+        unmodifiedModeComboBox.setEnabled(enabled);
+        builtInWriterCheckBox.setEnabled(enabled);
+        resumeCheckBox.setEnabled(enabled);
+        verifyCopiesCheckBox.setEnabled(enabled);
+        duplicatePolicyComboBox.setEnabled(enabled);
+        verifyModeComboBox.setEnabled(enabled);
+        metricsCheckBox.setEnabled(enabled);
+        matchThreadsComboBox.setEnabled(enabled);
+        copyThreadsComboBox.setEnabled(enabled);
+        tagThreadsComboBox.setEnabled(enabled);
+        virtualThreadsCheckBox.setEnabled(enabled);
+        ioPerDeviceComboBox.setEnabled(enabled);
         pauseBtn.setEnabled(!enabled);
         cancelBtn.setEnabled(!enabled);
     }
+
+    static final String AUTO_THREADS = "Auto";
+
+    private static JComboBox<String> threadsComboBox() {
+        JComboBox<String> box = new JComboBox<>(new String[]{AUTO_THREADS, "1", "2", "4", "8", "16"});
+        box.setEditable(true);
+        box.setPrototypeDisplayValue("Auto ");
+        return box;
+    }
 }
@@ -0,0 +1,197 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Restores a Takeout straight from its archive parts. Media entries are streamed
+ * directly into the output tree and tagged there; sidecar entries are reduced to
+ * their {@link SidecarMetadata} as they pass. Only media whose sidecar has not been
+ * seen yet (it may come later, even in another part) is remembered and paired once
+ * every part has been read.
+ */
+public class ArchiveImporter {
+
+    /** Writes metadata into an output file in place; returns true on success. */
+    public interface Tagger { boolean tag(SidecarMetadata meta, Path file); }
+
+    private record Media(String entryName, String fileName, long size, long mtime) {}
+
+    /** Everything seen so far for one directory inside the archive. */
+    private static final class DirState {
+        final List<String> jsonNames = new ArrayList<>();
+        final Set<String> jsonSet = new HashSet<>();
+        final Map<String, SidecarMetadata> metadata = new HashMap<>();
+        final Map<String, String> byMedia = new HashMap<>();
+        final List<Media> pending = new ArrayList<>();
+
+        /** The sidecar that certainly belongs to {@code fileName}, if it has been seen. */
+        String exactMatch(String fileName) {
+            if (jsonSet.contains(fileName + ".json")) return fileName + ".json";
+            return byMedia.get(fileName);
+        }
+    }
+
+    private final Path outputRoot;
+    private final StagePool tagStage;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Tagger tagger;
+    private final ProcessingJournal journal;
+    private final RunStats stats;
+    private final boolean resume;
+    private final Consumer<String> log;
+    private final Consumer<String> onFileDone;
+    private final BooleanSupplier cancelled;
+    private final Map<String, DirState> dirs = new HashMap<>();
+    private final AtomicInteger discovered = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    public ArchiveImporter(Path outputRoot, StagePool tagStage, int maxInFlight, Tagger tagger,
+                           ProcessingJournal journal, RunStats stats, boolean resume, Consumer<String> log,
+                           Consumer<String> onFileDone, BooleanSupplier cancelled) {
+        this.outputRoot = outputRoot.toAbsolutePath().normalize();
+        this.tagStage = tagStage; this.inFlight = new Semaphore(maxInFlight); this.maxInFlight = maxInFlight; this.tagger = tagger;
+        this.journal = journal; this.stats = stats; this.resume = resume; this.log = log;
+        this.onFileDone = onFileDone; this.cancelled = cancelled;
+    }
+
+    public int discovered() { return discovered.get(); }
+    public int skipped() { return skipped.get(); }
+    /** Media files written out and waiting for, or being, tagged. */
+    public int inFlight() { return maxInFlight - inFlight.availablePermits(); }
+
+    /** Reads every part in order, then pairs the media whose sidecar came later. */
+    public void importParts(List<Path> parts) throws IOException, InterruptedException {
+        for (Path part : parts) {
+            if (cancelled.getAsBoolean()) return;
+            log.accept("INFO: Reading archive " + part.getFileName());
+            TakeoutArchive.forEachEntry(part, this::visit);
+        }
+        pairPending();
+    }
+
+    /** Handles one archive entry; returns false once the run is cancelled, to stop reading the part. */
+    private boolean visit(String entryName, long size, long mtime, InputStream in) throws IOException, InterruptedException {
+        if (cancelled.getAsBoolean()) return false;
+        int slash = entryName.lastIndexOf('/');
+        String dir = slash < 0 ? "" : entryName.substring(0, slash);
+        String fileName = entryName.substring(slash + 1);
+        DirState state = dirs.computeIfAbsent(dir, d -> new DirState());
+
+        if (fileName.endsWith(".json")) {
+            addSidecar(state, fileName, in);
+            return true;
+        }
+        if (!MediaWalker.isMedia(fileName)) return true;
+
+        Path outFile = outputRoot.resolve(entryName).normalize();
+        if (!outFile.startsWith(outputRoot)) {
+            log.accept("WARN: Skipping archive entry outside the output folder: " + entryName);
+            return true;
+        }
+        discovered.incrementAndGet();
+        if (resume && journal.isDone(entryName, size, mtime) && Files.exists(outFile)) {
+            skipped.incrementAndGet();
+            onFileDone.accept(fileName);
+            return true;
+        }
+
+        log.accept("PROCESS: Starting: " + fileName);
+        Files.createDirectories(outFile.getParent());
+        long start = System.nanoTime();
+        FileCopier.copy(in, outFile);
+        stats.time(RunStats.Stage.COPY, start);
+
+        Media media = new Media(entryName, fileName, size, mtime);
+        String json = state.exactMatch(fileName);
+        if (json != null) submitTag(state, media, json, outFile);
+        else state.pending.add(media);
+        return true;
+    }
+
+    private void addSidecar(DirState state, String fileName, InputStream in) throws IOException {
+        SidecarMetadata meta = null;
+        long start = System.nanoTime();
+        try {
+            meta = SidecarMetadata.parse(in.readAllBytes());
+        } catch (RuntimeException e) { /* Not a sidecar (album metadata etc.), still counts for matching */ }
+        stats.time(RunStats.Stage.PARSE, start);
+        if (!state.jsonSet.add(fileName)) return;
+        state.jsonNames.add(fileName);
+        if (meta != null) state.metadata.put(fileName, meta);
+        String mediaName = SidecarIndex.mediaNameOf(fileName);
+        if (mediaName != null) state.byMedia.putIfAbsent(mediaName, fileName);
+    }
+
+    private void pairPending() throws InterruptedException {
+        for (Map.Entry<String, DirState> e : dirs.entrySet()) {
+            DirState state = e.getValue();
+            if (state.pending.isEmpty()) continue;
+            SidecarIndex index = SidecarIndex.of(state.jsonNames);
+            for (Media media : state.pending) {
+                if (cancelled.getAsBoolean()) return;
+                Path outFile = outputRoot.resolve(media.entryName()).normalize();
+                long start = System.nanoTime();
+                String json = index.find(media.fileName());
+                stats.time(RunStats.Stage.MATCH, start);
+                if (json != null) {
+                    submitTag(state, media, json, outFile);
+                } else {
+                    log.accept("WARN: No matching JSON found for: " + media.fileName());
+                    record(media, null, null, ProcessingJournal.Outcome.COPIED);
+                    onFileDone.accept(media.fileName());
+                }
+            }
+            state.pending.clear();
+        }
+    }
+
+    private void submitTag(DirState state, Media media, String json, Path outFile) throws InterruptedException {
+        log.accept("SUCCESS: Found JSON for " + media.fileName() + " -> " + json);
+        SidecarMetadata meta = state.metadata.get(json);
+        String jsonEntry = media.entryName().substring(0, media.entryName().length() - media.fileName().length()) + json;
+        while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            if (cancelled.getAsBoolean()) return;
+        }
+        boolean submitted = tagStage.submit(() -> {
+            try {
+                if (cancelled.getAsBoolean()) return;
+                if (meta == null) {
+                    log.accept("WARN: No timestamp in JSON for " + media.fileName());
+                    record(media, jsonEntry, null, ProcessingJournal.Outcome.COPIED);
+                } else {
+                    boolean ok = tagger.tag(meta, outFile);
+                    if (!ok && cancelled.getAsBoolean()) return; // Stopped by the cancel; not journaled, so redone next run
+                    record(media, jsonEntry, meta, ok ? ProcessingJournal.Outcome.TAGGED : ProcessingJournal.Outcome.FAILED);
+                }
+                onFileDone.accept(media.fileName());
+            } finally {
+                inFlight.release();
+            }
+        });
+        if (!submitted) inFlight.release();
+    }
+
+    private void record(Media media, String json, SidecarMetadata meta, ProcessingJournal.Outcome outcome) {
+        stats.count(json, outcome);
+        try {
+            journal.record(media.entryName(), media.size(), media.mtime(), json, meta == null ? null : meta.taken(), outcome);
+        } catch (IOException e) {
+            log.accept("ERROR: Could not update journal for " + media.fileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.rahul;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sizes the adaptive {@link StagePool}s from what they achieve, in the manner of AIMD.
+ * Every interval each stage that has work waiting is probed with one more thread;
+ * the thread is kept only if the stage's throughput rises with it. If throughput falls
+ * while the time per task climbs, the stage is contending for something (a disk head,
+ * the CPU) and loses a quarter of its threads. Idle stages are left alone, since
+ * their throughput only reflects the stage feeding them.
+ */
+public class ConcurrencyController implements AutoCloseable {
+    static final long INTERVAL_MILLIS = 2000;
+    /** Throughput must rise by this factor for a new thread to be kept. */
+    private static final double MIN_GAIN = 1.05;
+    /** Throughput falling below this factor counts as a drop. */
+    private static final double DROP = 0.90;
+    /** Intervals to wait after a failed probe before trying again. */
+    private static final int HOLD_INTERVALS = 5;
+
+    private final List<Tracker> trackers = new ArrayList<>();
+    private final Consumer<String> log;
+    private final ScheduledExecutorService timer;
+
+    public ConcurrencyController(List<StagePool> stages, Consumer<String> log) {
+        this(stages, log, INTERVAL_MILLIS);
+    }
+
+    /** With another interval, for tests. */
+    ConcurrencyController(List<StagePool> stages, Consumer<String> log, long intervalMillis) {
+        this.log = log;
+        for (StagePool s : stages) if (s.isAdaptive()) trackers.add(new Tracker(s));
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "concurrency-controller");
+            t.setDaemon(true);
+            return t;
+        });
+        if (!trackers.isEmpty()) timer.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        for (Tracker t : trackers) {
+            try {
+                t.adjust(now);
+            } catch (RuntimeException e) { log.accept("WARN: Could not resize " + t.pool.name() + " threads: " + e.getMessage()); }
+        }
+    }
+
+    @Override
+    public void close() { timer.shutdownNow(); }
+
+    private final class Tracker {
+        final StagePool pool;
+        long lastNanos = System.nanoTime(), lastCompleted, lastBusy;
+        double lastRate, lastLatency;
+        int lastChange, hold;
+
+        Tracker(StagePool pool) { this.pool = pool; }
+
+        void adjust(long now) {
+            long completed = pool.completed(), busy = pool.busyNanos();
+            long done = completed - lastCompleted;
+            double rate = done * 1e9 / (now - lastNanos);
+            double latency = done > 0 ? (busy - lastBusy) / (double) done : lastLatency;
+            lastNanos = now; lastCompleted = completed; lastBusy = busy;
+
+            int threads = pool.threads(), target = threads;
+            // Work held back for its disk counts too: the stage's own queue stays empty while the disks are full.
+            if (pool.queued() + pool.reserved() == 0 || done == 0) {
+                // Starved (or stuck on one long task): nothing to learn from this interval.
+                rate = 0;
+            } else if (lastRate > 0 && rate < lastRate * DROP && latency > lastLatency) {
+                target = threads - Math.max(1, threads / 4);
+            } else if (lastChange > 0 && rate < lastRate * MIN_GAIN) {
+                target = threads - 1;
+                hold = HOLD_INTERVALS;
+            } else if (hold > 0) {
+                hold--;
+            } else {
+                target = threads + 1;
+            }
+            lastRate = rate;
+            lastLatency = latency;
+            int size = target == threads ? threads : pool.setThreads(target);
+            lastChange = size - threads;
+            if (size != threads) {
+                log.accept("INFO: " + pool.name() + " threads " + threads + " -> " + size + String.format(" (%.1f files/s)", rate));
+            }
+        }
+    }
+}
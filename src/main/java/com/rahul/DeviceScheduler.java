@@ -0,0 +1,153 @@
+package com.rahul;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues the copy and tag work of each storage device separately and releases it to
+ * the stages round-robin across devices, keeping at most the device's limit of file
+ * operations in flight on it. With inputs on several disks every disk stays busy,
+ * while a spinning disk never gets more parallel reads than it can serve without
+ * seeking back and forth. An operation counts against both the device it reads from
+ * and the one it writes to.
+ */
+public class DeviceScheduler {
+
+    /** The queue and in-flight count of one device. */
+    private static final class Lane {
+        final int limit;
+        final ArrayDeque<Op> queue = new ArrayDeque<>();
+        int inFlight;
+
+        Lane(int limit) { this.limit = limit; }
+    }
+
+    private record Op(StagePool stage, Lane source, Lane target, Runnable task) {}
+
+    private final int limitOverride;
+    private final Map<StorageDevice, Lane> lanes = new HashMap<>();
+    private final List<Lane> order = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private int next;
+
+    /** @param limitOverride operations in flight per device, or 0 to go by the device's kind */
+    public DeviceScheduler(int limitOverride) {
+        this.limitOverride = limitOverride;
+    }
+
+    /** The number of operations {@code device} is given at once. */
+    public int limit(StorageDevice device) {
+        return limitOverride > 0 ? limitOverride : device.kind().concurrency;
+    }
+
+    /**
+     * Runs {@code task} on {@code stage} once both devices have room, waiting while the
+     * stage's backlog is full. Returns false, without running it, if the stage was shut down.
+     */
+    public boolean submit(StagePool stage, StorageDevice source, StorageDevice target, Runnable task) throws InterruptedException {
+        if (!stage.reserve()) return false;
+        enqueue(stage, source, target, task);
+        return true;
+    }
+
+    /**
+     * Like {@link #submit}, but never waits for the backlog. For a task that is itself
+     * running under this scheduler: it holds device room that queued work may need.
+     */
+    public void handOff(StagePool stage, StorageDevice source, StorageDevice target, Runnable task) {
+        stage.reserveNow();
+        enqueue(stage, source, target, task);
+    }
+
+    private void enqueue(StagePool stage, StorageDevice source, StorageDevice target, Runnable task) {
+        lock.lock();
+        try {
+            Lane lane = lane(source);
+            lane.queue.add(new Op(stage, lane, lane(target), task));
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Operations waiting for {@code device}. */
+    public int queued(StorageDevice device) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(device);
+            return lane == null ? 0 : lane.queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Operations running on {@code device}. */
+    public int inFlight(StorageDevice device) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(device);
+            return lane == null ? 0 : lane.inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lane lane(StorageDevice device) {
+        return lanes.computeIfAbsent(device, d -> {
+            Lane lane = new Lane(limit(d));
+            order.add(lane);
+            return lane;
+        });
+    }
+
+    /** Starts queued operations, taking devices in turn, until none can start. Called with the lock held. */
+    private void dispatch() {
+        boolean started = true;
+        while (started) {
+            started = false;
+            for (int i = 0; i < order.size(); i++) {
+                Lane lane = order.get((next + i) % order.size());
+                Op op = lane.queue.peek();
+                if (op == null || !hasRoom(op)) continue;
+                lane.queue.poll();
+                acquire(op);
+                next = (next + i + 1) % order.size();
+                if (!op.stage().dispatch(() -> run(op))) release(op);
+                started = true;
+                break;
+            }
+        }
+    }
+
+    private void run(Op op) {
+        try {
+            op.task().run();
+        } finally {
+            lock.lock();
+            try {
+                release(op);
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static boolean hasRoom(Op op) {
+        return op.source().inFlight < op.source().limit && (op.target() == op.source() || op.target().inFlight < op.target().limit);
+    }
+
+    private static void acquire(Op op) {
+        op.source().inFlight++;
+        if (op.target() != op.source()) op.target().inFlight++;
+    }
+
+    private static void release(Op op) {
+        op.source().inFlight--;
+        if (op.target() != op.source()) op.target().inFlight--;
+    }
+}
@@ -0,0 +1,155 @@
+package com.rahul;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds media that appears more than once in a Takeout (e.g. in "Photos from 2019"
+ * and in every album). Files are grouped by size first; only when a second file of
+ * the same size shows up are both hashed. The first file of each content/metadata
+ * group is processed normally, the rest are deferred and placed afterwards
+ * according to the chosen {@link Policy}.
+ */
+public class DuplicateDetector {
+    public static final String REPORT_NAME = "duplicates-report.json";
+
+    public enum Policy {
+        OFF("Process every copy"),
+        HARDLINK("Hardlink duplicates"),
+        REFLINK("Reflink duplicates"),
+        SKIP("Skip duplicates");
+        private final String displayName;
+        Policy(String d) { this.displayName = d; }
+        @Override public String toString() { return displayName; }
+    }
+
+    /** One media file, with what is needed to place and journal it later. */
+    public record Member(Path source, Path output, String journalKey, long size, long mtime) {}
+
+    /** Files with identical content and identical sidecar metadata. */
+    public static final class Group {
+        private final Member original;
+        private final String hash;
+        private final List<Member> duplicates = new ArrayList<>();
+
+        Group(Member original, String hash) { this.original = original; this.hash = hash; }
+
+        public Member original() { return original; }
+        public List<Member> duplicates() { return duplicates; }
+    }
+
+    /** All files of one size; hashed lazily once a second one appears. */
+    private static final class SizeBucket {
+        // Hashing happens under this lock, so it is not a monitor that would pin a virtual thread.
+        final ReentrantLock lock = new ReentrantLock();
+        Member first;
+        String firstMeta;
+        final Map<String, Group> groups = new HashMap<>();
+    }
+
+    private final ConcurrentHashMap<Long, SizeBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a file about to be processed. Returns true if it duplicates an earlier
+     * file with the same metadata; the caller then skips it until {@link #groups()}.
+     */
+    public boolean claim(Member member, String metadataKey) throws IOException {
+        SizeBucket bucket = buckets.computeIfAbsent(member.size(), s -> new SizeBucket());
+        bucket.lock.lock();
+        try {
+            if (bucket.first == null && bucket.groups.isEmpty()) {
+                bucket.first = member;
+                bucket.firstMeta = metadataKey;
+                return false;
+            }
+            if (bucket.first != null) {
+                String firstHash = hash(bucket.first.source());
+                bucket.groups.put(firstHash + '|' + bucket.firstMeta, new Group(bucket.first, firstHash));
+                bucket.first = null;
+            }
+            String hash = hash(member.source());
+            Group group = bucket.groups.get(hash + '|' + metadataKey);
+            if (group == null) {
+                bucket.groups.put(hash + '|' + metadataKey, new Group(member, hash));
+                return false;
+            }
+            group.duplicates.add(member);
+            return true;
+        } finally {
+            bucket.lock.unlock();
+        }
+    }
+
+    /** Groups that have at least one duplicate. */
+    public List<Group> groups() {
+        List<Group> result = new ArrayList<>();
+        for (SizeBucket bucket : buckets.values()) {
+            bucket.lock.lock();
+            try {
+                for (Group g : bucket.groups.values()) if (!g.duplicates.isEmpty()) result.add(g);
+            } finally {
+                bucket.lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes every duplicate group as JSON, with paths relative to the input, or
+     * absolute when there are several inputs.
+     */
+    public void writeReport(Path reportFile, List<Path> inputRoots) throws IOException {
+        JSONArray groups = new JSONArray();
+        long duplicateFiles = 0, duplicateBytes = 0;
+        for (Group g : groups()) {
+            JSONArray dups = new JSONArray();
+            for (Member m : g.duplicates) dups.put(display(inputRoots, m.source()));
+            groups.put(new JSONObject()
+                    .put("size", g.original.size())
+                    .put("sha256", g.hash)
+                    .put("original", display(inputRoots, g.original.source()))
+                    .put("duplicates", dups));
+            duplicateFiles += g.duplicates.size();
+            duplicateBytes += g.duplicates.size() * g.original.size();
+        }
+        JSONObject report = new JSONObject()
+                .put("duplicateFiles", duplicateFiles)
+                .put("duplicateBytes", duplicateBytes)
+                .put("groups", groups);
+        Files.writeString(reportFile, report.toString(2), StandardCharsets.UTF_8);
+    }
+
+    private static String display(List<Path> roots, Path file) {
+        return roots.size() == 1 ? roots.get(0).relativize(file).toString() : file.toAbsolutePath().toString();
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[1 << 20];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
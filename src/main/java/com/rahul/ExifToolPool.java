@@ -0,0 +1,183 @@
+package com.rahul;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A pool of long-lived ExifTool processes started with "-stay_open True -@ -".
+ * Each call writes one argument block to a worker's stdin and reads its output
+ * until the matching "{readyN}" marker, avoiding a Perl start-up per file.
+ * Workers are started on first use, so a run that never needs ExifTool starts none.
+ */
+public class ExifToolPool implements AutoCloseable {
+
+    /** Output of a single ExifTool command block. */
+    public static final class Result {
+        private final boolean success;
+        private final String output;
+
+        Result(boolean success, String output) { this.success = success; this.output = output; }
+
+        public boolean isSuccess() { return success; }
+        public String getOutput() { return output; }
+    }
+
+    private static final Pattern SUMMARY_OK = Pattern.compile("\\b[1-9]\\d* image files (updated|created|unchanged)");
+
+    private final String exiftoolPath;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final List<Worker> all = new ArrayList<>();
+    private final int size;
+    private volatile boolean closed = false;
+
+    public ExifToolPool(String exiftoolPath, int size) {
+        this.exiftoolPath = exiftoolPath;
+        this.size = size;
+    }
+
+    /**
+     * Runs one ExifTool command (the arguments of a single invocation, without the
+     * executable or the target-independent "-stay_open" options) on a pooled worker.
+     */
+    public Result execute(List<String> args) throws IOException, InterruptedException {
+        Worker w = borrow();
+        try {
+            return w.run(args);
+        } catch (IOException e) {
+            // The process died or its pipes broke: drop it, the next borrow starts a replacement.
+            w.destroy();
+            synchronized (all) { all.remove(w); }
+            w = null;
+            throw e;
+        } finally {
+            if (w != null) {
+                idle.add(w);
+                if (closed && idle.remove(w)) {
+                    w.shutdown();
+                    synchronized (all) { all.remove(w); }
+                }
+            }
+        }
+    }
+
+    /** Number of ExifTool processes started so far and still alive. */
+    public int started() {
+        synchronized (all) { return all.size(); }
+    }
+
+    /** Number of ExifTool processes currently running a command. */
+    public int busy() { return Math.max(0, started() - idle.size()); }
+
+    private Worker borrow() throws IOException, InterruptedException {
+        while (true) {
+            if (closed) throw new IOException("ExifTool pool is closed");
+            Worker w = idle.poll();
+            if (w != null) return w;
+            synchronized (all) {
+                if (all.size() < size) {
+                    w = new Worker();
+                    all.add(w);
+                    return w;
+                }
+            }
+            w = idle.poll(1, TimeUnit.SECONDS);
+            if (w != null) return w;
+        }
+    }
+
+    /**
+     * Asks every idle worker to exit, killing any that do not finish within a few seconds.
+     * Workers that are still busy are shut down as soon as their current command returns.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        List<Worker> workers = new ArrayList<>();
+        idle.drainTo(workers);
+        for (Worker w : workers) w.requestExit();
+        for (Worker w : workers) w.awaitExit(5, TimeUnit.SECONDS);
+        synchronized (all) { all.removeAll(workers); }
+    }
+
+    /** Kills every worker immediately, including those in the middle of a command. */
+    public void kill() {
+        closed = true;
+        synchronized (all) { for (Worker w : all) w.destroy(); }
+    }
+
+    private final class Worker {
+        private final Process process;
+        private final BufferedWriter stdin;
+        private final BufferedReader stdout;
+        private int sequence = 0;
+
+        Worker() throws IOException {
+            process = new ProcessBuilder(exiftoolPath, "-stay_open", "True", "-@", "-")
+                    .redirectErrorStream(true)
+                    .start();
+            stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        Result run(List<String> args) throws IOException {
+            if (!process.isAlive()) throw new IOException("ExifTool worker exited with code " + process.exitValue());
+            int id = ++sequence;
+            stdin.write("-charset\nfilename=utf8\n");
+            for (String arg : args) {
+                stdin.write(arg.replace('\n', ' '));
+                stdin.write('\n');
+            }
+            stdin.write("-execute" + id + "\n");
+            stdin.flush();
+
+            String marker = "{ready" + id + "}";
+            StringBuilder out = new StringBuilder();
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                if (line.equals(marker)) return new Result(isSuccess(out), out.toString().trim());
+                out.append(line).append('\n');
+            }
+            throw new IOException("ExifTool worker terminated unexpectedly: " + out.toString().trim());
+        }
+
+        private boolean isSuccess(CharSequence out) {
+            String s = out.toString();
+            if (s.contains("Error:")) return false;
+            // Read-only commands print no summary; write commands must have touched a file.
+            return !s.contains(" image files ") || SUMMARY_OK.matcher(s).find();
+        }
+
+        void requestExit() {
+            try {
+                stdin.write("-stay_open\nFalse\n");
+                stdin.flush();
+            } catch (IOException ignored) { /* Already gone */ }
+        }
+
+        void awaitExit(long timeout, TimeUnit unit) {
+            try {
+                if (!process.waitFor(timeout, unit)) process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void shutdown() {
+            requestExit();
+            awaitExit(5, TimeUnit.SECONDS);
+        }
+
+        void destroy() { process.destroyForcibly(); }
+    }
+}
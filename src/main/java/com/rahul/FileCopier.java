@@ -0,0 +1,225 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Places files that need no metadata changes into the output tree, either as a
+ * plain copy or, when input and output share a filesystem, as a hardlink or a
+ * copy-on-write reflink so no file data is written at all. Copies are checksummed
+ * as they are written and only appear under their final name once complete and
+ * flushed to disk, so not even a power loss leaves a truncated file under that name.
+ */
+public class FileCopier {
+    public enum UnmodifiedMode {
+        COPY("Copy"),
+        HARDLINK("Hardlink (same drive)"),
+        REFLINK("Reflink (copy-on-write)");
+        private final String displayName;
+        UnmodifiedMode(String d) { this.displayName = d; }
+        @Override public String toString() { return displayName; }
+    }
+
+    /** Changes the data of a file as it is copied, e.g. to write tags into it on the way. */
+    public interface Patcher {
+        /** Changes {@code chunk}, which holds the file's bytes from {@code position} on, in place. */
+        void apply(ByteBuffer chunk, long position);
+    }
+
+    /** Returned instead of a checksum when no file data was copied (a link). */
+    public static final long NO_CHECKSUM = -1;
+    private static final int COPY_CHUNK = 1 << 20;
+    private static final String TEMP_SUFFIX = ".takeout-tmp";
+    private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private final UnmodifiedMode mode;
+    private final boolean verify;
+    // Set after the first failure so a cross-device output doesn't retry on every file.
+    private volatile boolean linkUnsupported = false;
+
+    /** @param verify read every copy back and compare its checksum with the source's */
+    public FileCopier(UnmodifiedMode mode, boolean verify) {
+        this.mode = mode;
+        this.verify = verify;
+    }
+
+    /**
+     * Places {@code src} at {@code dst} using the configured mode, falling back to a copy.
+     * Returns the CRC32C of the copy, or {@link #NO_CHECKSUM} if it was linked.
+     */
+    public long placeUnmodified(Path src, Path dst) throws IOException {
+        if (mode != UnmodifiedMode.COPY && !linkUnsupported) {
+            Files.deleteIfExists(dst);
+            if (mode == UnmodifiedMode.HARDLINK ? hardlink(src, dst) : reflink(src, dst)) return NO_CHECKSUM;
+            linkUnsupported = true;
+        }
+        return copy(src, dst);
+    }
+
+    /**
+     * Copies {@code src} over {@code dst} and returns the CRC32C of its content. The data
+     * goes through one direct buffer, checksummed on the way, into a temporary file next
+     * to {@code dst}, which is flushed to disk and renamed over {@code dst} once complete.
+     * If verifying, the temporary file is first read back and its checksum compared. That
+     * read is almost always served from the page cache, so it catches a copy corrupted on
+     * its way through memory or this code, not a disk that fails to store it. A copy that does not
+     * complete, or does not match, is deleted, so {@code dst} is never left truncated.
+     * Interrupting the thread (on cancel) stops the copy within one chunk.
+     */
+    public long copy(Path src, Path dst) throws IOException {
+        return copy(src, dst, null);
+    }
+
+    /**
+     * Like {@link #copy(Path, Path)}, with every chunk passed through {@code patcher}
+     * before it is checksummed and written; the checksum is then the patched file's.
+     */
+    public long copy(Path src, Path dst, Patcher patcher) throws IOException {
+        Path temp = tempFile(dst);
+        boolean done = false;
+        try {
+            long checksum;
+            try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size(), position = 0;
+                CRC32C crc = new CRC32C();
+                ByteBuffer buffer = takeBuffer();
+                try {
+                    while (position < size) {
+                        buffer.clear().limit((int) Math.min(COPY_CHUNK, size - position));
+                        if (in.read(buffer, position) <= 0) throw new IOException("File shrank while being copied: " + src);
+                        buffer.flip();
+                        if (patcher != null) patcher.apply(buffer, position);
+                        crc.update(buffer.duplicate());
+                        while (buffer.hasRemaining()) position += out.write(buffer, position);
+                    }
+                    out.force(true);
+                } finally {
+                    BUFFERS.offer(buffer);
+                }
+                checksum = crc.getValue();
+            }
+            if (verify) {
+                long copied = checksum(temp);
+                if (copied != checksum) {
+                    throw new IOException("Copy of " + src.getFileName() + " does not match the original (CRC32C "
+                            + hex(copied) + " instead of " + hex(checksum) + ")");
+                }
+            }
+            Files.move(temp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+            return checksum;
+        } finally {
+            if (!done) Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Flushes {@code temp}, a complete file written by someone else (ExifTool), to disk and
+     * renames it over {@code dst}. Returns its CRC32C if verifying copies, else {@link #NO_CHECKSUM}.
+     */
+    public long commit(Path temp, Path dst) throws IOException {
+        long checksum = verify ? checksum(temp) : NO_CHECKSUM;
+        force(temp);
+        Files.move(temp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return checksum;
+    }
+
+    /** The temporary file a copy to {@code dst} is written to before it is renamed into place. */
+    public static Path tempFile(Path dst) {
+        return dst.resolveSibling("." + dst.getFileName() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Writes {@code in} to {@code dst} through a temporary file flushed to disk and renamed
+     * into place once complete, for data that only comes as a stream, like an archive entry.
+     */
+    public static void copy(InputStream in, Path dst) throws IOException {
+        Path temp = tempFile(dst);
+        boolean done = false;
+        try {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            force(temp);
+            Files.move(temp, dst, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+        } finally {
+            if (!done) Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Waits until the content of {@code file} is on the disk, not just in the page cache. */
+    private static void force(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+    }
+
+    /** The CRC32C of a file's content, as returned by {@link #copy(Path, Path)}. */
+    public static long checksum(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = takeBuffer().clear();
+            try {
+                while (in.read(buffer) > 0) {
+                    crc.update(buffer.flip());
+                    buffer.clear();
+                }
+            } finally {
+                BUFFERS.offer(buffer);
+            }
+            return crc.getValue();
+        }
+    }
+
+    /** A checksum as the eight hex digits the journal and reports use. */
+    public static String hex(long checksum) {
+        return String.format("%08x", checksum);
+    }
+
+    /**
+     * A direct buffer from the shared pool, or a new one. CRC32C and the channels work on
+     * it without copying to the heap; pooled rather than per thread, since a virtual
+     * thread lives for one copy only.
+     */
+    private static ByteBuffer takeBuffer() {
+        ByteBuffer buffer = BUFFERS.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(COPY_CHUNK);
+    }
+
+    private static boolean hardlink(Path src, Path dst) {
+        try {
+            Files.createLink(dst, src);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean reflink(Path src, Path dst) {
+        String os = System.getProperty("os.name").toLowerCase();
+        String[] cmd = os.contains("mac") ? new String[]{"cp", "-c", src.toString(), dst.toString()} :
+                (os.contains("nix") || os.contains("nux")) ? new String[]{"cp", "--reflink=always", src.toString(), dst.toString()} : null;
+        if (cmd == null) return false;
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (p.waitFor(1, TimeUnit.MINUTES) && p.exitValue() == 0) return true;
+            p.destroyForcibly();
+        } catch (IOException e) {
+            /* cp not available */
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try { Files.deleteIfExists(dst); } catch (IOException ignored) { /* Overwritten by the copy fallback */ }
+        return false;
+    }
+}
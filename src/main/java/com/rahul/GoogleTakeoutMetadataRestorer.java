@@ -4,10 +4,14 @@ import javax.swing.SwingUtilities;
 
 /**
  * Main entry point for the Google Takeout Metadata Restorer application.
- * Initializes and displays the user interface.
+ * Initializes and displays the user interface, or runs headless through
+ * {@link RestoreCli} when command-line arguments are given.
  */
 public class GoogleTakeoutMetadataRestorer {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(RestoreCli.run(args));
+        }
         SwingUtilities.invokeLater(() -> {
             AppView view = new AppView();
             new AppController(view); // The controller links the view and the logic
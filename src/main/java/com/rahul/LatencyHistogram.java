@@ -0,0 +1,66 @@
+package com.rahul;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram in the style of HdrHistogram: microsecond values
+ * below 16 get a bucket each, larger ones fall into 16 linear sub-buckets per power
+ * of two, so any recorded value is reported to within about 6%. Recording is a
+ * few shifts and one atomic increment, cheap enough to do for every file.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos / 1000));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() { return count.sum(); }
+    public long totalNanos() { return totalNanos.sum(); }
+    public long maxNanos() { return maxNanos.get(); }
+
+    /**
+     * The value at or below which {@code quantile} (0..1) of the recorded values lie,
+     * in nanoseconds, rounded up to the end of its bucket. Returns 0 when empty.
+     */
+    public long percentileNanos(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) total += snapshot[i] = counts.get(i);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBoundMicros(i) * 1000, maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) return index + 1;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS));
+    }
+}
@@ -0,0 +1,101 @@
+package com.rahul;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams every log line to a file in the output folder on a background thread,
+ * so the workers never wait on the disk and the window only has to hold the
+ * most recent lines. Lines are timestamped when written; the file is appended
+ * to across runs.
+ */
+public class LogFile implements AutoCloseable {
+    public static final String FILE_NAME = "takeout-restorer.log";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss ");
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(8192);
+    private final BufferedWriter out;
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    private LogFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        writer = new Thread(this::run, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Opens (or creates) the log file of an output folder. */
+    public static LogFile open(Path outputRoot) throws IOException {
+        return new LogFile(outputRoot.resolve(FILE_NAME));
+    }
+
+    /** Queues a line; blocks only if the disk falls far behind. */
+    public void write(String line) {
+        if (closed) return;
+        try {
+            queue.put(line);
+        } catch (InterruptedException e) {
+            // Cancelled worker: keep its last words if there is room, and stay interrupted.
+            queue.offer(line);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        boolean failed = false;
+        try {
+            while (true) {
+                Object line = queue.take();
+                if (line == END) break;
+                if (failed) continue;
+                try {
+                    out.write(LocalDateTime.now().format(TIME));
+                    out.write((String) line);
+                    out.newLine();
+                    if (queue.isEmpty()) out.flush();
+                } catch (IOException e) {
+                    failed = true; // Keep draining so writers never block on a broken disk
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try { out.close(); } catch (IOException e) { /* Nothing left to report it to */ }
+        }
+    }
+
+    /**
+     * Writes out everything queued so far and closes the file. A cancelled run still
+     * waits for its last lines; the interrupt is kept for the caller.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END);
+                break;
+            } catch (InterruptedException e) { interrupted = true; }
+        }
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) { interrupted = true; }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,100 @@
+package com.rahul;
+
+import javax.swing.AbstractListModel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The log shown in the window: a fixed-size ring of the most recent lines, of which
+ * only those at or above the selected {@link Level} are listed. Older lines drop off
+ * the front; the complete log goes to {@link LogFile}. Used on the EDT only.
+ */
+public class LogModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+    public static final int DEFAULT_CAPACITY = 20_000;
+
+    public enum Level {
+        INFO("All messages"),
+        WARN("Warnings and errors"),
+        ERROR("Errors only");
+        private final String displayName;
+        Level(String d) { this.displayName = d; }
+        @Override public String toString() { return displayName; }
+
+        /** The level of a log line, taken from its "WARN:" / "ERROR:" style prefix. */
+        public static Level of(String line) {
+            if (line.startsWith("ERROR") || line.startsWith("FATAL")) return ERROR;
+            if (line.startsWith("WARN")) return WARN;
+            return INFO;
+        }
+    }
+
+    private final String[] lines;
+    private final Level[] levels;
+    private int start, size;
+    // Positions in the ring of the lines that pass the filter, oldest first.
+    private final int[] shown;
+    private int shownStart, shownSize;
+    private Level minLevel = Level.INFO;
+
+    public LogModel(int capacity) {
+        lines = new String[capacity];
+        levels = new Level[capacity];
+        shown = new int[capacity];
+    }
+
+    public LogModel() { this(DEFAULT_CAPACITY); }
+
+    public void append(List<String> batch) {
+        if (batch.isEmpty()) return;
+        int before = shownSize, removed = 0;
+        for (String line : batch) {
+            int slot;
+            if (size < lines.length) {
+                slot = (start + size++) % lines.length;
+            } else {
+                slot = start;
+                start = (start + 1) % lines.length;
+                if (shownSize > 0 && shown[shownStart] == slot) {
+                    shownStart = (shownStart + 1) % shown.length;
+                    shownSize--;
+                    removed++;
+                }
+            }
+            lines[slot] = line;
+            levels[slot] = Level.of(line);
+            if (levels[slot].compareTo(minLevel) >= 0) {
+                shown[(shownStart + shownSize++) % shown.length] = slot;
+            }
+        }
+        int added = shownSize - (before - removed);
+        if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+        if (added > 0) fireIntervalAdded(this, shownSize - added, shownSize - 1);
+    }
+
+    public void clear() {
+        int old = shownSize;
+        start = size = shownStart = shownSize = 0;
+        Arrays.fill(lines, null);
+        if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+    }
+
+    public Level getMinLevel() { return minLevel; }
+
+    /** Shows only lines at or above {@code level}; hidden lines are kept and reappear if lowered again. */
+    public void setMinLevel(Level level) {
+        minLevel = level;
+        int old = shownSize;
+        shownStart = shownSize = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % lines.length;
+            if (levels[slot].compareTo(level) >= 0) shown[shownSize++] = slot;
+        }
+        if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+        if (shownSize > 0) fireIntervalAdded(this, 0, shownSize - 1);
+    }
+
+    @Override public int getSize() { return shownSize; }
+
+    @Override public String getElementAt(int index) { return lines[shown[(shownStart + index) % shown.length]]; }
+}
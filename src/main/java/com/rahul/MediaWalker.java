@@ -0,0 +1,123 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The discovery stage: walks a Takeout folder and hands every media file to the
+ * next stage as soon as it is found. When that stage's backlog is full the walk
+ * blocks, so the workers set the pace instead of the whole tree being held in memory.
+ */
+public class MediaWalker extends SimpleFileVisitor<Path> {
+    /** Takes a found media file, blocking while the next stage is full; false if that stage was shut down. */
+    public interface Sink {
+        boolean put(Path file) throws InterruptedException;
+    }
+
+    private static final String[] MEDIA_EXTS = {".jpg", ".jpeg", ".png", ".heic", ".mp4", ".mov", ".avi", ".mkv"};
+
+    private final Sink sink;
+    private final SidecarIndexCache sidecars;
+    private final BooleanSupplier cancelled;
+    private final Consumer<String> log;
+    private final AtomicInteger discovered = new AtomicInteger();
+    private volatile boolean rejected = false;
+
+    public MediaWalker(Sink sink, SidecarIndexCache sidecars, BooleanSupplier cancelled, Consumer<String> log) {
+        this.sink = sink; this.sidecars = sidecars; this.cancelled = cancelled; this.log = log;
+    }
+
+    public static boolean isMedia(Path file) {
+        return isMedia(file.getFileName().toString());
+    }
+
+    public static boolean isMedia(String fileName) {
+        String name = fileName.toLowerCase();
+        for (String ext : MEDIA_EXTS) if (name.endsWith(ext)) return true;
+        return false;
+    }
+
+    /**
+     * Walks {@code root}, blocking whenever the next stage is full. Returns false if
+     * interrupted, or stopped because the next stage no longer takes files.
+     */
+    public boolean walk(Path root) throws IOException {
+        Files.walkFileTree(root, this);
+        return !Thread.currentThread().isInterrupted() && !rejected;
+    }
+
+    /**
+     * Walks each root with its walker, all at once on a thread each, so that folders on
+     * different disks are read side by side. Returns false if any walk was interrupted.
+     */
+    public static boolean walkAll(List<MediaWalker> walkers, List<Path> roots) throws IOException, InterruptedException {
+        boolean completed = true;
+        try (ExecutorService walking = Executors.newFixedThreadPool(roots.size(), r -> new Thread(r, "walker"))) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < roots.size(); i++) {
+                MediaWalker walker = walkers.get(i);
+                Path root = roots.get(i);
+                results.add(walking.submit(() -> walker.walk(root)));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    completed &= result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) throw io;
+                    throw new IOException(e.getCause());
+                }
+            }
+        }
+        return completed;
+    }
+
+    /** Number of media files queued so far. */
+    public int discovered() { return discovered.get(); }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (cancelled.getAsBoolean()) return FileVisitResult.TERMINATE;
+        if (!attrs.isRegularFile() || !isMedia(file)) return FileVisitResult.CONTINUE;
+        sidecars.retain(file.getParent());
+        try {
+            if (!sink.put(file)) {
+                // Shut down (cancelled): no match task will release the directory for this file.
+                sidecars.release(file.getParent());
+                rejected = true;
+                return FileVisitResult.TERMINATE;
+            }
+        } catch (InterruptedException e) {
+            sidecars.release(file.getParent());
+            Thread.currentThread().interrupt();
+            return FileVisitResult.TERMINATE;
+        }
+        discovered.incrementAndGet();
+        return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+        // No more files from this directory will be queued, so its index can go once drained.
+        sidecars.seal(dir);
+        return cancelled.getAsBoolean() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        log.accept("WARN: Cannot read " + file + ": " + exc.getMessage());
+        return FileVisitResult.CONTINUE;
+    }
+}
@@ -0,0 +1,222 @@
+package com.rahul;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Checks whether a file already carries a sidecar's date and GPS, so that writing
+ * them again can be skipped. JPEG, HEIC and MP4/MOV headers are read in-process;
+ * for anything else ExifTool reads the tags of the file's whole directory in one
+ * call, and the result serves the directory's other files as well. Files written
+ * after their directory was read must be passed to {@link #written}; they are then
+ * read on their own.
+ */
+public class MetadataVerifier {
+    public enum Mode {
+        OFF("Always write metadata"),
+        SKIP_CORRECT("Skip files already correct"),
+        REPORT_ONLY("Only report mismatches");
+        private final String displayName;
+        Mode(String d) { this.displayName = d; }
+        @Override public String toString() { return displayName; }
+    }
+
+    public enum Verdict { MATCH, MISMATCH, UNREADABLE }
+
+    /** The date and GPS tags found in a file; null where a tag is missing. */
+    public record Tags(String dateTimeOriginal, String createDate, String modifyDate, Double latitude, Double longitude) {
+        @Override
+        public String toString() {
+            return "DateTimeOriginal=" + dash(dateTimeOriginal) + " CreateDate=" + dash(createDate) + " ModifyDate=" + dash(modifyDate)
+                    + " GPS=" + (latitude == null || longitude == null ? "-" : latitude + "," + longitude);
+        }
+
+        private static String dash(String s) { return s == null ? "-" : s; }
+    }
+
+    /** The outcome of a check; {@code found} describes what the file has, for the report. */
+    public record Result(Verdict verdict, String found) {}
+
+    public static final String REPORT_NAME = "verify-report.tsv";
+    /** About a metre; GPS values are stored with less precision than the sidecar's. */
+    private static final double GPS_TOLERANCE = 1e-5;
+    private static final int CACHED_DIRECTORIES = 16;
+
+    /** The tags of one directory's files, read by ExifTool at most once. */
+    private static final class Directory {
+        // Not synchronized: waiting for ExifTool while holding a monitor would pin a virtual thread.
+        final ReentrantLock readLock = new ReentrantLock();
+        volatile Map<String, Tags> tags;
+        /** Files written since the directory was first looked up, whose cached tags may be out of date. */
+        final Set<String> written = ConcurrentHashMap.newKeySet();
+    }
+
+    private final NativeMetadataWriter nativeReader;
+    private final ExifToolPool exiftool;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Path, Directory> directories = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Directory> eldest) { return size() > CACHED_DIRECTORIES; }
+    };
+
+    public MetadataVerifier(NativeMetadataWriter nativeReader, ExifToolPool exiftool) {
+        this.nativeReader = nativeReader;
+        this.exiftool = exiftool;
+    }
+
+    /** Compares the tags {@code file} has with the ones {@code meta} would write. */
+    public Result check(Path file, SidecarMetadata meta) throws IOException, InterruptedException {
+        Tags tags = nativeReader.read(file, meta.hasGps());
+        if (tags == null) {
+            String name = file.getFileName().toString();
+            Directory d = directory(file.getParent(), false);
+            tags = d != null && d.written.contains(name) ? exiftoolRead(file).get(name) : readDirectory(file.getParent()).get(name);
+        }
+        if (tags == null) return new Result(Verdict.UNREADABLE, "tags could not be read");
+        return new Result(matches(tags, meta) ? Verdict.MATCH : Verdict.MISMATCH, tags.toString());
+    }
+
+    /**
+     * True if the file has the sidecar's date as CreateDate, no other date tag that
+     * disagrees and, if the sidecar has a location, the same GPS position.
+     */
+    static boolean matches(Tags tags, SidecarMetadata meta) {
+        String date = meta.exifDate();
+        if (!sameDate(tags.createDate(), date)) return false;
+        if (tags.dateTimeOriginal() != null && !sameDate(tags.dateTimeOriginal(), date)) return false;
+        if (tags.modifyDate() != null && !sameDate(tags.modifyDate(), date)) return false;
+        if (!meta.hasGps()) return true;
+        return tags.latitude() != null && tags.longitude() != null
+                && Math.abs(tags.latitude() - meta.latitude()) <= GPS_TOLERANCE
+                && Math.abs(tags.longitude() - meta.longitude()) <= GPS_TOLERANCE;
+    }
+
+    /** Compares "yyyy:MM:dd HH:mm:ss", ignoring sub-seconds or a time zone that may follow. */
+    private static boolean sameDate(String found, String expected) {
+        return found != null && found.length() >= expected.length() && found.startsWith(expected);
+    }
+
+    /** Notes that {@code file} was written, so tags cached for it before are not used. */
+    public void written(Path file) {
+        Directory d = directory(file.getParent(), false);
+        if (d != null) d.written.add(file.getFileName().toString());
+    }
+
+    private Directory directory(Path dir, boolean create) {
+        lock.lock();
+        try {
+            return create ? directories.computeIfAbsent(dir, k -> new Directory()) : directories.get(dir);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Tags> readDirectory(Path dir) throws IOException, InterruptedException {
+        Directory d = directory(dir, true);
+        Map<String, Tags> tags = d.tags;
+        if (tags != null) return tags;
+        d.readLock.lock();
+        try {
+            if (d.tags == null) d.tags = exiftoolRead(dir);
+            return d.tags;
+        } finally {
+            d.readLock.unlock();
+        }
+    }
+
+    /** One ExifTool call for the date and GPS tags of {@code path}, or every file in it if a directory, keyed by file name. */
+    private Map<String, Tags> exiftoolRead(Path path) throws IOException, InterruptedException {
+        ExifToolPool.Result result = exiftool.execute(List.of("-json", "-n", "-q", "-fast", "--ext", "json",
+                "-DateTimeOriginal", "-CreateDate", "-ModifyDate", "-GPSLatitude", "-GPSLongitude", path.toString()));
+        String out = result.getOutput();
+        int from = out.indexOf('['), to = out.lastIndexOf(']');
+        Map<String, Tags> tags = new HashMap<>();
+        if (from < 0 || to < from) return tags;
+        JSONArray files = new JSONArray(out.substring(from, to + 1));
+        for (int i = 0; i < files.length(); i++) {
+            JSONObject f = files.getJSONObject(i);
+            String source = f.optString("SourceFile", "");
+            String name = source.substring(Math.max(source.lastIndexOf('/'), source.lastIndexOf('\\')) + 1);
+            tags.put(name, new Tags(text(f, "DateTimeOriginal"), text(f, "CreateDate"), text(f, "ModifyDate"),
+                    number(f, "GPSLatitude"), number(f, "GPSLongitude")));
+        }
+        return tags;
+    }
+
+    /**
+     * The mismatches found by a report-only run, one per line: output path (relative to
+     * the output), problem, expected date and GPS (or, for a file without metadata, the
+     * checksum journaled when it was written), what was found; tab-separated.
+     */
+    public static final class Report implements AutoCloseable {
+        private final BufferedWriter out;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int lines;
+
+        public Report(Path outputRoot) throws IOException {
+            out = Files.newBufferedWriter(outputRoot.resolve(REPORT_NAME), StandardCharsets.UTF_8);
+        }
+
+        public void add(String file, String problem, SidecarMetadata meta, String found) throws IOException {
+            write(file, problem, meta.exifDate() + (meta.hasGps() ? " GPS=" + meta.latitude() + "," + meta.longitude() : ""), found);
+        }
+
+        /** Reports a file whose content no longer has the CRC32C journaled for it. */
+        public void addCopy(String file, String problem, long checksum, String found) throws IOException {
+            write(file, problem, "CRC32C=" + FileCopier.hex(checksum), found);
+        }
+
+        private void write(String file, String problem, String expected, String found) throws IOException {
+            String line = ProcessingJournal.escape(file) + '\t' + problem + '\t' + expected + '\t' + found + '\n';
+            lock.lock();
+            try {
+                out.write(line);
+                lines++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Number of mismatches reported so far. */
+        public int size() {
+            lock.lock();
+            try {
+                return lines;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                out.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static String text(JSONObject f, String key) {
+        return f.has(key) ? String.valueOf(f.get(key)) : null;
+    }
+
+    private static Double number(JSONObject f, String key) {
+        Object v = f.opt(key);
+        return v instanceof Number n ? n.doubleValue() : null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.rahul;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves a run's {@link RunStats} on http://127.0.0.1:&lt;port&gt;/metrics in the
+ * Prometheus text format, and as JSON on /metrics.json. Only bound to loopback.
+ */
+public class MetricsServer implements AutoCloseable {
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) { this.server = server; }
+
+    public static MetricsServer start(int port, RunStats stats) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/metrics.json")) {
+                respond(exchange, "application/json", stats.toJson().toString(2));
+            } else {
+                respond(exchange, "text/plain; version=0.0.4", stats.toPrometheus());
+            }
+        });
+        server.start();
+        return new MetricsServer(server);
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public int port() { return server.getAddress().getPort(); }
+
+    @Override
+    public void close() { server.stop(0); }
+}
@@ -0,0 +1,469 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes the sidecar date and GPS tags without ExifTool for the formats most
+ * Takeouts consist of. JPEG and HEIC files get their existing EXIF date/GPS entries
+ * overwritten; MP4/MOV files get their mvhd/tkhd/mdhd timestamps overwritten.
+ * Only the bytes of those entries are rewritten. If any required entry is missing,
+ * nothing is changed and the caller falls back to ExifTool. The same entries can
+ * also be read back, to check whether a file already carries the sidecar's values.
+ */
+public class NativeMetadataWriter {
+    private static final long QUICKTIME_EPOCH_OFFSET = 2082844800L; // 1904-01-01 -> 1970-01-01
+    private static final Set<String> HEIF_BRANDS = Set.of("heic", "heix", "heim", "heis", "mif1", "msf1");
+    private static final Set<String> QUICKTIME_LEADING_BOXES = Set.of("moov", "mdat", "wide", "free", "skip");
+    private static final int TAG_MODIFY_DATE = 0x0132, TAG_EXIF_IFD = 0x8769, TAG_GPS_IFD = 0x8825;
+    private static final int TAG_DATE_TIME_ORIGINAL = 0x9003, TAG_CREATE_DATE = 0x9004;
+    private static final int TAG_GPS_LAT_REF = 1, TAG_GPS_LAT = 2, TAG_GPS_LON_REF = 3, TAG_GPS_LON = 4;
+    private static final int TYPE_ASCII = 2, TYPE_RATIONAL = 5;
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private enum Format { JPEG, HEIF, QUICKTIME }
+
+    private record Patch(long offset, byte[] bytes) {}
+
+    private record Box(long start, long size, int header, String type) {
+        long payload() { return start + header; }
+        long end() { return start + size; }
+    }
+
+    private static final FileCopier COPIER = new FileCopier(FileCopier.UnmodifiedMode.COPY, false);
+
+    /**
+     * Writes {@code meta} into {@code target}. When {@code source} differs it is copied
+     * to {@code target} with the tags patched in on the way (see {@link #patcher}).
+     * Returns false if the file was not handled.
+     */
+    public boolean write(Path source, Path target, SidecarMetadata meta) throws IOException {
+        if (!source.equals(target)) {
+            FileCopier.Patcher patcher = patcher(source, meta);
+            if (patcher == null) return false;
+            COPIER.copy(source, target, patcher);
+            return true;
+        }
+        List<Patch> patches = patches(source, meta);
+        if (patches == null) return false;
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            for (Patch p : patches) {
+                ByteBuffer b = ByteBuffer.wrap(p.bytes());
+                long pos = p.offset();
+                while (b.hasRemaining()) pos += out.write(b, pos);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Works out where {@code meta} goes in {@code source} and returns a patcher that
+     * writes it into a copy as it passes through {@link FileCopier}, or null if the file
+     * is not handled. The source is never changed, and an unsupported file never copied.
+     */
+    public FileCopier.Patcher patcher(Path source, SidecarMetadata meta) throws IOException {
+        List<Patch> patches = patches(source, meta);
+        if (patches == null) return null;
+        return (chunk, position) -> {
+            long end = position + chunk.limit();
+            for (Patch p : patches) {
+                long from = Math.max(p.offset(), position), to = Math.min(p.offset() + p.bytes().length, end);
+                for (long at = from; at < to; at++) chunk.put((int) (at - position), p.bytes()[(int) (at - p.offset())]);
+            }
+        };
+    }
+
+    private List<Patch> patches(Path source, SidecarMetadata meta) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            return plan(in, meta);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            return null; // Malformed structure, let ExifTool deal with it
+        }
+    }
+
+    /**
+     * Reads the date and GPS entries of a JPEG, HEIC or MP4/MOV file. Returns null if
+     * the format is not supported, or, with {@code needGps}, if its GPS cannot be read
+     * here (MP4/MOV), so the caller has to ask ExifTool.
+     */
+    public MetadataVerifier.Tags read(Path file, boolean needGps) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            Format format = format(ch);
+            if (format == Format.QUICKTIME) return needGps ? null : readQuickTime(ch);
+            long[] tiff = format == Format.JPEG ? findJpegTiff(ch) : format == Format.HEIF ? findHeifTiff(ch) : null;
+            return tiff == null || !fits(ch, tiff) ? null : readTiff(ch, tiff[0], (int) tiff[1]);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Format format(FileChannel ch) throws IOException {
+        if (ch.size() < 12) return null;
+        ByteBuffer head = read(ch, 0, 12);
+        if ((head.getShort(0) & 0xFFFF) == 0xFFD8) return Format.JPEG;
+
+        String firstType = fourCC(head, 4);
+        if (firstType.equals("ftyp")) return HEIF_BRANDS.contains(fourCC(head, 8)) ? Format.HEIF : Format.QUICKTIME;
+        return QUICKTIME_LEADING_BOXES.contains(firstType) ? Format.QUICKTIME : null;
+    }
+
+    private List<Patch> plan(FileChannel ch, SidecarMetadata meta) throws IOException {
+        Format format = format(ch);
+        if (format == Format.QUICKTIME) return planQuickTime(ch, meta);
+        long[] tiff = format == Format.JPEG ? findJpegTiff(ch) : format == Format.HEIF ? findHeifTiff(ch) : null;
+        return tiff == null || !fits(ch, tiff) ? null : planTiff(ch, tiff[0], (int) tiff[1], meta);
+    }
+
+    /** False for a truncated file, whose TIFF block would run past its end. */
+    private static boolean fits(FileChannel ch, long[] tiff) throws IOException {
+        return tiff[0] >= 0 && tiff[0] + tiff[1] <= ch.size();
+    }
+
+    // --- JPEG ---------------------------------------------------------------
+
+    /** Returns {offset, length} of the EXIF block's TIFF structure, or null. */
+    private long[] findJpegTiff(FileChannel ch) throws IOException {
+        long pos = 2;
+        while (pos + 4 <= ch.size()) {
+            ByteBuffer seg = read(ch, pos, 4);
+            if ((seg.get(0) & 0xFF) != 0xFF) return null;
+            int marker = seg.get(1) & 0xFF;
+            if (marker == 0xDA || marker == 0xD9) return null; // Image data reached without EXIF
+            int length = seg.getShort(2) & 0xFFFF;
+            if (marker == 0xE1 && length > 8) {
+                ByteBuffer id = read(ch, pos + 4, 6);
+                if (fourCC(id, 0).equals("Exif") && id.get(4) == 0 && id.get(5) == 0) {
+                    return new long[]{pos + 10, length - 8};
+                }
+            }
+            pos += 2 + length;
+        }
+        return null;
+    }
+
+    // --- HEIC / HEIF --------------------------------------------------------
+
+    /** Returns {offset, length} of the Exif item's TIFF structure, or null. */
+    private long[] findHeifTiff(FileChannel ch) throws IOException {
+        Box metaBox = findChild(ch, 0, ch.size(), "meta");
+        if (metaBox == null) return null;
+        long children = metaBox.payload() + 4; // meta is a FullBox
+        Box iinf = findChild(ch, children, metaBox.end(), "iinf");
+        Box iloc = findChild(ch, children, metaBox.end(), "iloc");
+        if (iinf == null || iloc == null) return null;
+
+        long exifId = findExifItemId(ch, iinf);
+        if (exifId < 0) return null;
+        long[] extent = findItemExtent(ch, iloc, exifId);
+        if (extent == null || extent[1] < 8) return null;
+
+        long tiffHeaderOffset = read(ch, extent[0], 4).getInt(0) & 0xFFFFFFFFL;
+        long tiffStart = extent[0] + 4 + tiffHeaderOffset;
+        long tiffLength = extent[1] - 4 - tiffHeaderOffset;
+        if (tiffLength <= 8 || tiffLength > Integer.MAX_VALUE) return null;
+        return new long[]{tiffStart, tiffLength};
+    }
+
+    private long findExifItemId(FileChannel ch, Box iinf) throws IOException {
+        ByteBuffer b = read(ch, iinf.payload(), 8);
+        int version = b.get(0);
+        long count = version == 0 ? b.getShort(4) & 0xFFFF : b.getInt(4) & 0xFFFFFFFFL;
+        long pos = iinf.payload() + (version == 0 ? 6 : 8);
+        for (long i = 0; i < count && pos < iinf.end(); i++) {
+            Box infe = box(ch, pos);
+            if (infe == null) return -1;
+            ByteBuffer e = read(ch, infe.payload(), (int) Math.min(16, infe.size() - infe.header()));
+            int v = e.get(0);
+            if (v >= 2) {
+                long id = v == 2 ? e.getShort(4) & 0xFFFF : e.getInt(4) & 0xFFFFFFFFL;
+                int typeAt = v == 2 ? 8 : 10;
+                if (fourCC(e, typeAt).equals("Exif")) return id;
+            }
+            pos = infe.end();
+        }
+        return -1;
+    }
+
+    /** Returns {offset, length} of a single-extent, file-stored item, or null. */
+    private long[] findItemExtent(FileChannel ch, Box iloc, long itemId) throws IOException {
+        int len = (int) Math.min(iloc.size() - iloc.header(), 1 << 20);
+        ByteBuffer b = read(ch, iloc.payload(), len);
+        int version = b.get(0);
+        b.position(4);
+        int sizes = b.get() & 0xFF, more = b.get() & 0xFF;
+        int offsetSize = sizes >> 4, lengthSize = sizes & 0xF, baseOffsetSize = more >> 4;
+        int indexSize = version == 1 || version == 2 ? more & 0xF : 0;
+        long count = version < 2 ? b.getShort() & 0xFFFF : b.getInt() & 0xFFFFFFFFL;
+        for (long i = 0; i < count; i++) {
+            long id = version < 2 ? b.getShort() & 0xFFFF : b.getInt() & 0xFFFFFFFFL;
+            int method = version == 1 || version == 2 ? b.getShort() & 0xF : 0;
+            int dataRef = b.getShort() & 0xFFFF;
+            long base = readSized(b, baseOffsetSize);
+            int extents = b.getShort() & 0xFFFF;
+            long offset = 0, length = 0;
+            for (int x = 0; x < extents; x++) {
+                readSized(b, indexSize);
+                offset = readSized(b, offsetSize);
+                length = readSized(b, lengthSize);
+            }
+            if (id == itemId) {
+                return method == 0 && dataRef == 0 && extents == 1 ? new long[]{base + offset, length} : null;
+            }
+        }
+        return null;
+    }
+
+    private static long readSized(ByteBuffer b, int size) {
+        switch (size) {
+            case 0: return 0;
+            case 4: return b.getInt() & 0xFFFFFFFFL;
+            case 8: return b.getLong();
+            default: throw new IllegalArgumentException("Unsupported field size " + size);
+        }
+    }
+
+    // --- EXIF / TIFF --------------------------------------------------------
+
+    private List<Patch> planTiff(FileChannel ch, long start, int length, SidecarMetadata meta) throws IOException {
+        ByteBuffer t = ch.map(FileChannel.MapMode.READ_ONLY, start, length);
+        short bom = t.getShort(0);
+        if (bom == 0x4949) t.order(ByteOrder.LITTLE_ENDIAN);
+        else if (bom != 0x4D4D) return null;
+        if (t.getShort(2) != 42) return null;
+
+        long ifd0 = t.getInt(4) & 0xFFFFFFFFL;
+        int modify = findEntry(t, ifd0, TAG_MODIFY_DATE);
+        int exifPtr = findEntry(t, ifd0, TAG_EXIF_IFD);
+        if (modify < 0 || exifPtr < 0) return null;
+        long exifIfd = t.getInt(exifPtr + 8) & 0xFFFFFFFFL;
+        int original = findEntry(t, exifIfd, TAG_DATE_TIME_ORIGINAL);
+        int create = findEntry(t, exifIfd, TAG_CREATE_DATE);
+        if (original < 0 || create < 0) return null;
+
+        List<Patch> patches = new ArrayList<>();
+        byte[] date = (meta.exifDate() + "\0").getBytes(StandardCharsets.US_ASCII);
+        for (int entry : new int[]{modify, original, create}) {
+            if (t.getShort(entry + 2) != TYPE_ASCII || t.getInt(entry + 4) < date.length) return null;
+            patches.add(new Patch(start + (t.getInt(entry + 8) & 0xFFFFFFFFL), date));
+        }
+
+        if (meta.hasGps()) {
+            int gpsPtr = findEntry(t, ifd0, TAG_GPS_IFD);
+            if (gpsPtr < 0) return null;
+            long gpsIfd = t.getInt(gpsPtr + 8) & 0xFFFFFFFFL;
+            int latRef = findEntry(t, gpsIfd, TAG_GPS_LAT_REF), lat = findEntry(t, gpsIfd, TAG_GPS_LAT);
+            int lonRef = findEntry(t, gpsIfd, TAG_GPS_LON_REF), lon = findEntry(t, gpsIfd, TAG_GPS_LON);
+            if (latRef < 0 || lat < 0 || lonRef < 0 || lon < 0) return null;
+            for (int ref : new int[]{latRef, lonRef}) {
+                if (t.getShort(ref + 2) != TYPE_ASCII || t.getInt(ref + 4) != 2) return null;
+            }
+            for (int coord : new int[]{lat, lon}) {
+                if (t.getShort(coord + 2) != TYPE_RATIONAL || t.getInt(coord + 4) != 3) return null;
+            }
+            patches.add(new Patch(start + latRef + 8, new byte[]{(byte) (meta.latitude() >= 0 ? 'N' : 'S'), 0}));
+            patches.add(new Patch(start + lonRef + 8, new byte[]{(byte) (meta.longitude() >= 0 ? 'E' : 'W'), 0}));
+            patches.add(new Patch(start + (t.getInt(lat + 8) & 0xFFFFFFFFL), degrees(meta.latitude(), t.order())));
+            patches.add(new Patch(start + (t.getInt(lon + 8) & 0xFFFFFFFFL), degrees(meta.longitude(), t.order())));
+        }
+        for (Patch p : patches) {
+            if (p.offset() + p.bytes().length > start + length) return null;
+        }
+        return patches;
+    }
+
+    private MetadataVerifier.Tags readTiff(FileChannel ch, long start, int length) throws IOException {
+        ByteBuffer t = ch.map(FileChannel.MapMode.READ_ONLY, start, length);
+        short bom = t.getShort(0);
+        if (bom == 0x4949) t.order(ByteOrder.LITTLE_ENDIAN);
+        else if (bom != 0x4D4D) return null;
+        if (t.getShort(2) != 42) return null;
+
+        long ifd0 = t.getInt(4) & 0xFFFFFFFFL;
+        String modify = ascii(t, findEntry(t, ifd0, TAG_MODIFY_DATE)), original = null, create = null;
+        int exifPtr = findEntry(t, ifd0, TAG_EXIF_IFD);
+        if (exifPtr >= 0) {
+            long exifIfd = t.getInt(exifPtr + 8) & 0xFFFFFFFFL;
+            original = ascii(t, findEntry(t, exifIfd, TAG_DATE_TIME_ORIGINAL));
+            create = ascii(t, findEntry(t, exifIfd, TAG_CREATE_DATE));
+        }
+        Double latitude = null, longitude = null;
+        int gpsPtr = findEntry(t, ifd0, TAG_GPS_IFD);
+        if (gpsPtr >= 0) {
+            long gpsIfd = t.getInt(gpsPtr + 8) & 0xFFFFFFFFL;
+            String latRef = ascii(t, findEntry(t, gpsIfd, TAG_GPS_LAT_REF)), lonRef = ascii(t, findEntry(t, gpsIfd, TAG_GPS_LON_REF));
+            double lat = coordinate(t, findEntry(t, gpsIfd, TAG_GPS_LAT)), lon = coordinate(t, findEntry(t, gpsIfd, TAG_GPS_LON));
+            if (latRef != null && lonRef != null && !Double.isNaN(lat) && !Double.isNaN(lon)) {
+                latitude = latRef.equals("S") ? -lat : lat;
+                longitude = lonRef.equals("W") ? -lon : lon;
+            }
+        }
+        return new MetadataVerifier.Tags(original, create, modify, latitude, longitude);
+    }
+
+    /** The value of an ASCII entry up to its terminating NUL, or null if there is no such entry. */
+    private static String ascii(ByteBuffer t, int entry) {
+        if (entry < 0 || t.getShort(entry + 2) != TYPE_ASCII) return null;
+        int count = t.getInt(entry + 4);
+        int at = count <= 4 ? entry + 8 : t.getInt(entry + 8);
+        if (count < 0 || at < 0 || at + count > t.limit()) return null;
+        StringBuilder b = new StringBuilder(count);
+        for (int i = 0; i < count && t.get(at + i) != 0; i++) b.append((char) (t.get(at + i) & 0xFF));
+        return b.toString();
+    }
+
+    /** Decodes three RATIONALs (degrees, minutes, seconds) into degrees, or NaN. */
+    private static double coordinate(ByteBuffer t, int entry) {
+        if (entry < 0 || t.getShort(entry + 2) != TYPE_RATIONAL || t.getInt(entry + 4) != 3) return Double.NaN;
+        long at = t.getInt(entry + 8) & 0xFFFFFFFFL;
+        if (at + 24 > t.limit()) return Double.NaN;
+        double value = 0;
+        for (int i = 0; i < 3; i++) {
+            long num = t.getInt((int) at + 8 * i) & 0xFFFFFFFFL, den = t.getInt((int) at + 8 * i + 4) & 0xFFFFFFFFL;
+            if (den == 0) return Double.NaN;
+            value += (double) num / den / Math.pow(60, i);
+        }
+        return value;
+    }
+
+    /** Returns the buffer position of the IFD entry with {@code tag}, or -1. */
+    private static int findEntry(ByteBuffer t, long ifd, int tag) {
+        if (ifd < 8 || ifd + 2 > t.limit()) return -1;
+        int count = t.getShort((int) ifd) & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > t.limit()) return -1;
+            if ((t.getShort(entry) & 0xFFFF) == tag) return entry;
+        }
+        return -1;
+    }
+
+    /** Encodes a coordinate as three RATIONALs: degrees, minutes, seconds. */
+    private static byte[] degrees(double value, ByteOrder order) {
+        double v = Math.abs(value);
+        long deg = (long) v;
+        double minutes = (v - deg) * 60;
+        long min = (long) minutes;
+        long sec = Math.round((minutes - min) * 60 * 10000);
+        return ByteBuffer.allocate(24).order(order)
+                .putInt((int) deg).putInt(1)
+                .putInt((int) min).putInt(1)
+                .putInt((int) sec).putInt(10000)
+                .array();
+    }
+
+    // --- QuickTime / MP4 ----------------------------------------------------
+
+    private List<Patch> planQuickTime(FileChannel ch, SidecarMetadata meta) throws IOException {
+        // GPS lives in variable-length udta/meta atoms that cannot be patched in place.
+        if (meta.hasGps()) return null;
+        Box moov = findChild(ch, 0, ch.size(), "moov");
+        if (moov == null) return null;
+
+        long seconds = meta.taken().getEpochSecond() + QUICKTIME_EPOCH_OFFSET;
+        List<Patch> patches = new ArrayList<>();
+        Box mvhd = findChild(ch, moov.payload(), moov.end(), "mvhd");
+        if (mvhd == null || !patchTimes(ch, mvhd, seconds, patches)) return null;
+
+        for (long pos = moov.payload(); pos < moov.end(); ) {
+            Box child = box(ch, pos);
+            if (child == null || child.end() > moov.end()) return null;
+            if (child.type().equals("trak")) {
+                Box tkhd = findChild(ch, child.payload(), child.end(), "tkhd");
+                if (tkhd != null && !patchTimes(ch, tkhd, seconds, patches)) return null;
+                Box mdia = findChild(ch, child.payload(), child.end(), "mdia");
+                Box mdhd = mdia == null ? null : findChild(ch, mdia.payload(), mdia.end(), "mdhd");
+                if (mdhd != null && !patchTimes(ch, mdhd, seconds, patches)) return null;
+            }
+            pos = child.end();
+        }
+        return patches;
+    }
+
+    /** The movie's creation and modification times, from mvhd, as EXIF dates in UTC. */
+    private MetadataVerifier.Tags readQuickTime(FileChannel ch) throws IOException {
+        Box moov = findChild(ch, 0, ch.size(), "moov");
+        Box mvhd = moov == null ? null : findChild(ch, moov.payload(), moov.end(), "mvhd");
+        if (mvhd == null) return null;
+        int version = read(ch, mvhd.payload(), 1).get(0);
+        if (version != 0 && version != 1) return null;
+        ByteBuffer times = read(ch, mvhd.payload() + 4, version == 1 ? 16 : 8);
+        long created = version == 1 ? times.getLong(0) : times.getInt(0) & 0xFFFFFFFFL;
+        long modified = version == 1 ? times.getLong(8) : times.getInt(4) & 0xFFFFFFFFL;
+        return new MetadataVerifier.Tags(null, quickTimeDate(created), quickTimeDate(modified), null, null);
+    }
+
+    private static String quickTimeDate(long seconds) {
+        if (seconds == 0) return null; // Not set
+        return LocalDateTime.ofEpochSecond(seconds - QUICKTIME_EPOCH_OFFSET, 0, ZoneOffset.UTC).format(EXIF_DATE);
+    }
+
+    /** Adds patches for the creation and modification times of an mvhd/tkhd/mdhd box. */
+    private static boolean patchTimes(FileChannel ch, Box b, long seconds, List<Patch> patches) throws IOException {
+        int version = read(ch, b.payload(), 1).get(0);
+        if (version == 1) {
+            byte[] value = ByteBuffer.allocate(8).putLong(seconds).array();
+            patches.add(new Patch(b.payload() + 4, value));
+            patches.add(new Patch(b.payload() + 12, value));
+            return true;
+        }
+        if (version != 0 || seconds > 0xFFFFFFFFL) return false;
+        byte[] value = ByteBuffer.allocate(4).putInt((int) seconds).array();
+        patches.add(new Patch(b.payload() + 4, value));
+        patches.add(new Patch(b.payload() + 8, value));
+        return true;
+    }
+
+    // --- ISO base media boxes -----------------------------------------------
+
+    private static Box findChild(FileChannel ch, long from, long to, String type) throws IOException {
+        for (long pos = from; pos + 8 <= to; ) {
+            Box b = box(ch, pos);
+            if (b == null || b.end() > to) return null;
+            if (b.type().equals(type)) return b;
+            pos = b.end();
+        }
+        return null;
+    }
+
+    private static Box box(FileChannel ch, long pos) throws IOException {
+        if (pos + 8 > ch.size()) return null;
+        ByteBuffer h = read(ch, pos, 8);
+        long size = h.getInt(0) & 0xFFFFFFFFL;
+        String type = fourCC(h, 4);
+        int header = 8;
+        if (size == 1) {
+            if (pos + 16 > ch.size()) return null;
+            size = read(ch, pos + 8, 8).getLong(0);
+            header = 16;
+        } else if (size == 0) {
+            size = ch.size() - pos;
+        }
+        return size < header ? null : new Box(pos, size, header, type);
+    }
+
+    private static ByteBuffer read(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new IndexOutOfBoundsException("Unexpected end of file");
+        }
+        return b.flip();
+    }
+
+    private static String fourCC(ByteBuffer b, int at) {
+        byte[] chars = new byte[4];
+        for (int i = 0; i < 4; i++) chars[i] = b.get(at + i);
+        return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,31 @@
+package com.rahul;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Holds workers while a run is paused. Passing an open gate is a single volatile
+ * read, so checking it before every file costs nothing while the run is not paused;
+ * only pausing and resuming take a lock.
+ */
+public class PauseGate {
+    // Null while open; otherwise the latch that the waiting workers are parked on.
+    private volatile CountDownLatch closed;
+
+    /** Blocks while the gate is closed. */
+    public void await() throws InterruptedException {
+        CountDownLatch latch = closed;
+        if (latch != null) latch.await();
+    }
+
+    public synchronized void close() {
+        if (closed == null) closed = new CountDownLatch(1);
+    }
+
+    public synchronized void open() {
+        CountDownLatch latch = closed;
+        closed = null;
+        if (latch != null) latch.countDown();
+    }
+
+    public boolean isClosed() { return closed != null; }
+}
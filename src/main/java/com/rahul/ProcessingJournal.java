@@ -0,0 +1,139 @@
+package com.rahul;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An append-only record of every file a run has handled, kept in the output folder.
+ * A later run loads it and skips sources whose size and modification time are
+ * unchanged since they were last processed successfully.
+ *
+ * Each line is: source path (relative to the input), size, mtime in millis,
+ * matched JSON, applied timestamp, outcome, CRC32C of the output; tab-separated.
+ * The checksum is known for outputs written through a temporary file (copies and
+ * tagged copies) and is "-" for outputs changed in place or linked, and in journals
+ * written before it was added.
+ */
+public class ProcessingJournal implements AutoCloseable {
+    public static final String FILE_NAME = ".takeout-restorer-journal.tsv";
+    private static final int FLUSH_EVERY = 100;
+
+    public enum Outcome { TAGGED, COPIED, DUPLICATE, FAILED }
+
+    private record Entry(long size, long mtime, Outcome outcome, long checksum) {}
+
+    private final Map<String, Entry> done = new ConcurrentHashMap<>();
+    private final BufferedWriter out;
+    // A lock rather than synchronized: writing while holding a monitor would pin a virtual thread.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private int unflushed = 0;
+
+    private ProcessingJournal(Path file) throws IOException {
+        load(file);
+        Files.createDirectories(file.getParent());
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /** Opens (or creates) the journal of an output folder and loads its earlier entries. */
+    public static ProcessingJournal open(Path outputRoot) throws IOException {
+        return new ProcessingJournal(outputRoot.resolve(FILE_NAME));
+    }
+
+    private void load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split("\t", -1);
+                if (f.length != 6 && f.length != 7) continue; // Torn write from an interrupted run
+                try {
+                    long checksum = f.length == 7 && !f[6].equals("-") ? Long.parseLong(f[6], 16) : FileCopier.NO_CHECKSUM;
+                    done.put(unescape(f[0]), new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]), Outcome.valueOf(f[5]), checksum));
+                } catch (IllegalArgumentException e) { /* Skip malformed line */ }
+            }
+        } catch (NoSuchFileException e) { /* First run into this folder */ }
+    }
+
+    public int size() { return done.size(); }
+
+    /** True if the source was handled successfully before and has not changed since. */
+    public boolean isDone(String source, long size, long mtime) {
+        Entry e = done.get(source);
+        return e != null && e.outcome() != Outcome.FAILED && e.size() == size && e.mtime() == mtime;
+    }
+
+    /** True if an unchanged source was left out as a duplicate, so it has no output of its own. */
+    public boolean isSkippedDuplicate(String source, long size, long mtime) {
+        Entry e = done.get(source);
+        return e != null && e.outcome() == Outcome.DUPLICATE && e.size() == size && e.mtime() == mtime;
+    }
+
+    /**
+     * The CRC32C recorded for the output of an unchanged source, or
+     * {@link FileCopier#NO_CHECKSUM} if there is none.
+     */
+    public long checksum(String source, long size, long mtime) {
+        Entry e = done.get(source);
+        return e != null && e.outcome() != Outcome.FAILED && e.size() == size && e.mtime() == mtime ? e.checksum() : FileCopier.NO_CHECKSUM;
+    }
+
+    public void record(String source, long size, long mtime, String json, Instant applied, Outcome outcome) throws IOException {
+        record(source, size, mtime, json, applied, outcome, FileCopier.NO_CHECKSUM);
+    }
+
+    /** Records a handled file with the CRC32C of its output, or {@link FileCopier#NO_CHECKSUM}. */
+    public void record(String source, long size, long mtime, String json, Instant applied, Outcome outcome, long checksum) throws IOException {
+        done.put(source, new Entry(size, mtime, outcome, checksum));
+        String line = escape(source) + '\t' + size + '\t' + mtime + '\t' + (json == null ? "-" : escape(json)) + '\t'
+                + (applied == null ? "-" : applied.getEpochSecond()) + '\t' + outcome
+                + '\t' + (checksum == FileCopier.NO_CHECKSUM ? "-" : FileCopier.hex(checksum)) + '\n';
+        writeLock.lock();
+        try {
+            out.write(line);
+            if (++unflushed >= FLUSH_EVERY) {
+                out.flush();
+                unflushed = 0;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            out.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder b = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                b.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+}
@@ -1,215 +1,134 @@
 package com.rahul;
 
-import org.json.JSONObject;
 import javax.swing.*;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.*;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
- * The background worker ("Model" or "Worker" in MVC).
- * Handles all file operations, ExifTool calls, and heavy lifting
- * on a background thread to keep the GUI responsive.
+ * Runs a {@link RestoreEngine} for the window (the "Worker" in MVC), off the EDT,
+ * and mirrors its log and progress into the {@link AppView}.
  */
-public class ProcessingTask extends SwingWorker<Void, String> {
-    private final String inputPath, outputPath, exiftoolPath;
+public class ProcessingTask extends SwingWorker<RunStats, Void> {
     private final AppView view;
     private final PowerManager.PostAction postAction;
     private final PowerManager powerManager;
-    private volatile boolean paused = false;
-    private static final String[] MEDIA_EXTS = {".jpg", ".jpeg", ".png", ".heic", ".mp4", ".mov", ".avi", ".mkv"};
-
-    public ProcessingTask(String i, String o, String e, AppView v, PowerManager.PostAction a) {
-        this.inputPath = i; this.outputPath = o; this.exiftoolPath = e; this.view = v;
+    private final RestoreEngine engine;
+    // Log lines and progress are handed to the EDT once per frame instead of once per file.
+    private final ConcurrentLinkedQueue<String> pendingLog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingLogSize = new AtomicInteger();
+    private volatile String lastFileName;
+    private final Timer uiTimer = new Timer(FRAME_MILLIS, e -> refreshView());
+    private static final int FRAME_MILLIS = 100;
+    private static final int STAGE_REFRESH_FRAMES = 10;
+    private final long[] lastStageCounts = new long[RunStats.Stage.values().length];
+    private long lastStageNanos = System.nanoTime();
+    private int frame;
+
+    public ProcessingTask(RestoreOptions options, AppView v, PowerManager.PostAction a) {
+        this.view = v;
         this.postAction = a; this.powerManager = new PowerManager();
+        this.engine = new RestoreEngine(options, new RestoreEngine.Listener() {
+            @Override public void log(String line) { queueLog(line); }
+            @Override public void fileDone(String fileName) { lastFileName = fileName; }
+        });
+        uiTimer.start();
     }
 
     @Override
-    protected Void doInBackground() throws Exception {
-        publish("INFO: === STARTING PROCESS ===");
+    protected RunStats doInBackground() throws Exception {
         if (postAction == PowerManager.PostAction.KEEP_AWAKE) {
             powerManager.startKeepingAwake();
-            publish("INFO: Power management enabled: System will be kept awake.");
-        }
-
-        List<Path> allFiles;
-        try (Stream<Path> stream = Files.walk(Paths.get(inputPath))) {
-            allFiles = stream.filter(Files::isRegularFile)
-                    .filter(p -> Arrays.stream(MEDIA_EXTS).anyMatch(ext -> p.toString().toLowerCase().endsWith(ext)))
-                    .collect(Collectors.toList());
-        }
-        int total = allFiles.size();
-        publish("INFO: Found " + total + " media files to process.");
-        if (total == 0) return null;
-
-        AtomicInteger processedCount = new AtomicInteger(0);
-        int numThreads = Runtime.getRuntime().availableProcessors();
-        publish("INFO: Starting parallel processing with " + numThreads + " threads.");
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-
-        for (Path file : allFiles) {
-            if (isCancelled()) break;
-            executor.submit(() -> {
-                try {
-                    handlePause();
-                    if (isCancelled()) return;
-                    processSingleFile(file);
-                    int current = processedCount.incrementAndGet();
-                    SwingUtilities.invokeLater(() -> {
-                        view.progressBar.setValue((int) ((current / (double) total) * 100));
-                        view.statusLabel.setText("Processed " + current + "/" + total + ": " + file.getFileName());
-                    });
-                } catch (Exception e) { publish("ERROR: Failed " + file.getFileName() + ": " + e.getMessage()); }
-            });
+            engine.log("INFO: Power management enabled: System will be kept awake.");
         }
-        executor.shutdown();
-        executor.awaitTermination(24, TimeUnit.HOURS);
-        return null;
+        return engine.run();
     }
 
-    private void processSingleFile(Path file) throws Exception {
-        publish("PROCESS: Starting: " + file.getFileName());
-        Path outFile = Paths.get(outputPath).resolve(Paths.get(inputPath).relativize(file));
-        Files.createDirectories(outFile.getParent());
-        Files.copy(file, outFile, StandardCopyOption.REPLACE_EXISTING);
-
-        Path jsonFile = findMatchingJson(file);
-        if (jsonFile != null) {
-            publish("SUCCESS: Found JSON for " + file.getFileName() + " -> " + jsonFile.getFileName());
-            applyMetadata(jsonFile.toString(), outFile.toString());
-        } else {
-            publish("WARN: No matching JSON found for: " + file.getFileName());
+    /** Queues a line for the next frame of the window's log. */
+    private void queueLog(String msg) {
+        pendingLog.add(msg);
+        // If the EDT is far behind, drop the oldest unseen lines; the log file still has them.
+        if (pendingLogSize.incrementAndGet() > LogModel.DEFAULT_CAPACITY && pendingLog.poll() != null) {
+            pendingLogSize.decrementAndGet();
         }
     }
 
-    private Path findMatchingJson(Path mediaFile) throws IOException {
-        String mediaFileName = mediaFile.getFileName().toString();
-        String baseName = mediaFileName.substring(0, mediaFileName.lastIndexOf('.'));
-        Path parentDir = mediaFile.getParent();
-
-        // Strategy 1: Perfect Match (e.g., "IMG_123.JPG.json")
-        Path perfectMatch = parentDir.resolve(mediaFileName + ".json");
-        if (Files.exists(perfectMatch)) return perfectMatch;
-
-        // Strategy 2: Title Match (e.g., "IMG_123(1).JPG" -> "IMG_123.json")
-        Path titleMatch = parentDir.resolve(baseName + ".json");
-        if (Files.exists(titleMatch)) return titleMatch;
-
-        // Strategy 3: Longest Prefix Match (Handles truncated names safely)
-        try (Stream<Path> stream = Files.list(parentDir)) {
-            Path longestPrefixMatch = stream
-                    .filter(p -> p.getFileName().toString().endsWith(".json") && !p.getFileName().toString().contains(".supplement"))
-                    .map(p -> new SimpleEntry<>(p, p.getFileName().toString().replace(".json", "")))
-                    .filter(entry -> baseName.startsWith(entry.getValue()))
-                    .max(Comparator.comparingInt(entry -> entry.getValue().length()))
-                    .map(SimpleEntry::getKey)
-                    .orElse(null);
-            if (longestPrefixMatch != null) return longestPrefixMatch;
-        }
-
-        // Strategy 4: 46-character truncation check (Google Takeout behavior)
-        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(parentDir, "*.json")) {
-            for (Path json : dirStream) {
-                String jsonName = json.getFileName().toString();
-                String jsonBase = jsonName.substring(0, jsonName.lastIndexOf('.'));
-
-                // If both names are longer than 46 chars, compare only first 46
-                if (baseName.length() > 46 && jsonBase.length() > 46) {
-                    if (baseName.substring(0, 46).equals(jsonBase.substring(0, 46))) {
-                        return json;
-                    }
-                }
-            }
-        }
+    /** Runs on the EDT once per frame: shows the lines logged since the last frame and the progress. */
+    private void refreshView() {
+        flushLog();
+        if (++frame % STAGE_REFRESH_FRAMES == 0) refreshStages();
+        String fileName = lastFileName;
+        if (fileName == null) return;
+        int current = engine.processed();
+        int found = engine.discovered();
+        boolean walking = !engine.isWalkFinished();
+        view.progressBar.setValue((int) ((current / (double) found) * 100));
+        view.progressBar.setString(walking ? current + " / " + found + " discovered so far" : null);
+        view.statusLabel.setText("Processed " + current + "/" + found + (walking ? "+" : "") + ": " + fileName);
+    }
 
-        // Strategy 5: Fallback to Original Fuzzy Truncation Logic
-        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(parentDir, "*.json")) {
-            for (Path json : dirStream) {
-                String jsonName = json.getFileName().toString();
-                String jsonBase = jsonName.substring(0, jsonName.lastIndexOf('.'));
-                for (int t = 1; t <= 5; t++) {
-                    if (baseName.length() > t) {
-                        if (jsonBase.startsWith(baseName.substring(0, baseName.length() - t)) && baseName.length() - t > 10) return json;
-                    }
-                    if (jsonBase.length() > t) {
-                        if (baseName.startsWith(jsonBase.substring(0, jsonBase.length() - t)) && jsonBase.length() - t > 10) return json;
-                    }
-                }
-            }
+    /** Shows files/s since the last refresh and p50/p99 latency for every stage that has run. */
+    private void refreshStages() {
+        long now = System.nanoTime();
+        double seconds = (now - lastStageNanos) / 1e9;
+        lastStageNanos = now;
+        RunStats stats = engine.stats();
+        int row = 0;
+        for (RunStats.Stage stage : RunStats.Stage.values()) {
+            LatencyHistogram h = stats.histogram(stage);
+            long count = h.count();
+            double rate = (count - lastStageCounts[stage.ordinal()]) / seconds;
+            lastStageCounts[stage.ordinal()] = count;
+            if (count == 0) continue;
+            Object[] values = {stage.label(), String.format("%.1f", rate), formatMicros(h.percentileNanos(0.50) / 1000),
+                    formatMicros(h.percentileNanos(0.99) / 1000), count};
+            if (row == view.stageTableModel.getRowCount()) view.stageTableModel.addRow(values);
+            else for (int c = 0; c < values.length; c++) view.stageTableModel.setValueAt(values[c], row, c);
+            row++;
         }
-        return null;
     }
 
-    private void applyMetadata(String jsonFile, String mediaFile) {
-        try {
-            String jsonContent = new String(Files.readAllBytes(Paths.get(jsonFile)));
-            JSONObject root = new JSONObject(jsonContent);
-
-            String ts = root.optJSONObject("photoTakenTime").optString("timestamp",
-                    root.optJSONObject("creationTime").optString("timestamp", null));
-            if (ts == null) {
-                publish("WARN: No timestamp in JSON for " + new File(mediaFile).getName());
-                return;
-            }
-
-            Instant instant = Instant.ofEpochSecond(Long.parseLong(ts));
-            String exifDate = LocalDateTime.ofInstant(instant, ZoneOffset.UTC).format(DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss"));
-
-            List<String> cmd = new java.util.ArrayList<>(Arrays.asList(exiftoolPath, "-overwrite_original", "-DateTimeOriginal=" + exifDate, "-CreateDate=" + exifDate, "-ModifyDate=" + exifDate));
-
-            JSONObject geo = root.optJSONObject("geoData");
-            if (geo != null && geo.optDouble("latitude", 0.0) != 0.0) {
-                cmd.add("-GPSLatitude=" + geo.getDouble("latitude")); cmd.add("-GPSLongitude=" + geo.getDouble("longitude"));
-                cmd.add("-GPSLatitudeRef=" + (geo.getDouble("latitude") >= 0 ? "N" : "S")); cmd.add("-GPSLongitudeRef=" + (geo.getDouble("longitude") >= 0 ? "E" : "W"));
-            }
-            cmd.add(mediaFile);
-
-            if (new ProcessBuilder(cmd).start().waitFor() == 0) {
-                publish("SUCCESS: Applied metadata to " + new File(mediaFile).getName());
-                Files.setLastModifiedTime(Paths.get(mediaFile), java.nio.file.attribute.FileTime.from(instant));
-            } else {
-                publish("ERROR: ExifTool failed for " + new File(mediaFile).getName());
-            }
-        } catch (Exception e) { publish("ERROR: Metadata failure for " + new File(mediaFile).getName() + ": " + e.getMessage()); }
+    private static String formatMicros(long micros) {
+        if (micros < 1000) return micros + " µs";
+        if (micros < 1_000_000) return String.format("%.1f ms", micros / 1000.0);
+        return String.format("%.2f s", micros / 1e6);
     }
 
-    @Override protected void process(List<String> chunks) { for (String msg : chunks) view.logArea.append(msg + "\n"); }
+    private void flushLog() {
+        List<String> batch = new ArrayList<>(Math.min(pendingLogSize.get(), LogModel.DEFAULT_CAPACITY));
+        String line;
+        while ((line = pendingLog.poll()) != null) {
+            pendingLogSize.decrementAndGet();
+            batch.add(line);
+        }
+        view.appendLog(batch);
+    }
 
     @Override protected void done() {
         powerManager.stopKeepingAwake();
+        uiTimer.stop();
+        refreshView();
+        refreshStages();
         try {
             get();
-            String finalMsg = isCancelled() ? "PROCESS CANCELLED BY USER" : "PROCESS COMPLETE";
-            publish("INFO: === " + finalMsg + " ===");
-            view.statusLabel.setText(isCancelled() ? "Cancelled" : "✅ Done!");
-            if (!isCancelled() && postAction == PowerManager.PostAction.SHUTDOWN) {
-                publish("ACTION: Shutting down computer in 60 seconds...");
+            view.statusLabel.setText(engine.isCancelled() ? "Cancelled" : "✅ Done!");
+            if (!engine.isCancelled() && postAction == PowerManager.PostAction.SHUTDOWN) {
+                queueLog("ACTION: Shutting down computer in 60 seconds...");
                 powerManager.shutdownComputer(60);
             }
         } catch (Exception e) {
-            publish("FATAL: An error occurred: " + e.getCause().getMessage());
             view.statusLabel.setText("❌ Error!");
         } finally {
+            flushLog();
             view.setButtonsEnabled(true);
             view.pauseBtn.setText("Pause");
         }
     }
 
-    public synchronized void setPaused(boolean p) { this.paused = p; if (!p) notifyAll(); }
-    public boolean isPaused() { return this.paused; }
-    private synchronized void handlePause() throws InterruptedException { while (paused) wait(); }
-}
\ No newline at end of file
+    /** Asks the engine to stop; {@link #done()} follows once the files in progress are finished. */
+    public void stop() { engine.cancel(); }
+
+    public void setPaused(boolean p) { engine.setPaused(p); }
+    public boolean isPaused() { return engine.isPaused(); }
+}
@@ -0,0 +1,308 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless entry point: runs a restore from the command line, prints throughput
+ * while it runs and writes a JSON summary at the end. Started by
+ * {@link GoogleTakeoutMetadataRestorer} whenever arguments are given.
+ */
+public class RestoreCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FILES_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_ERROR = 3;
+    public static final int EXIT_CANCELLED = 130;
+
+    private static final String USAGE = """
+            Usage: java -jar GoogleTakeoutMetadataRestorer.jar --input <folder|archive> --output <folder> [options]
+                   java -jar GoogleTakeoutMetadataRestorer.jar --input <folder> (--dry-run | --plan <file>)
+                   java -jar GoogleTakeoutMetadataRestorer.jar --execute-plan <file> --output <folder> [--shard N/M] [options]
+
+              --input PATH            Takeout folder, or the first part of a .zip/.tgz archive series;
+                                      repeat for several folders, e.g. on different disks
+              --output PATH           Folder to write the restored files to
+              --dry-run               Only match the sidecars and print what a restore would do
+              --plan FILE             Like --dry-run, and write the matches to FILE to execute later
+              --execute-plan FILE     Restore the files of a plan instead of walking the inputs; given
+                                      --input folders replace the plan's, in the same order
+              --shard N/M             Execute only shard N of M of the plan, e.g. one per machine
+              --exiftool PATH         ExifTool executable (default: exiftool on the PATH)
+              --threads N             Use N threads in each of the match, copy and tag stages
+              --match-threads N|auto  Threads matching sidecars (default: auto)
+              --copy-threads N|auto   Threads copying files (default: auto)
+              --tag-threads N|auto    Threads writing metadata (default: auto)
+              --exiftool-processes N  ExifTool processes to keep open (default: up to one per tag thread)
+              --virtual-threads       Run each file's steps on virtual threads
+              --io-per-device N       File operations in flight per disk (default: by disk kind,
+                                      2 for HDD, 16 for SSD, 64 for NVMe, 8 if not known)
+              --mode MODE             direct | copy-then-tag (default: direct)
+              --unmodified MODE       copy | hardlink | reflink, for files without JSON (default: copy)
+              --duplicates POLICY     off | hardlink | reflink | skip (default: off)
+              --no-builtin-writer     Always use ExifTool, also for JPEG/HEIC/MP4
+              --no-resume             Process every file, even if done by an earlier run
+              --no-verify-copies      Don't read copies back to compare their checksum with the source
+              --verify MODE           off | skip-correct | report-only (default: off); skip-correct
+                                      leaves tags that are already right, report-only writes
+                                      nothing and lists mismatches in <output>/%s
+              --summary PATH          Where to write the JSON summary (default: <output>/%s)
+              --progress-interval S   Seconds between throughput lines (default: 5, 0 for none)
+              --metrics-port N        Serve Prometheus metrics on http://127.0.0.1:N/metrics (default: off)
+              --snapshot-interval S   Seconds between writes of <output>/%s (default: 0, off)
+              --verbose               Print every log line, not just warnings, errors and milestones
+
+            Exit codes: 0 done, 1 done but some files failed, 2 bad arguments,
+                        3 run aborted by an error, 130 cancelled
+            """.formatted(MetadataVerifier.REPORT_NAME, RunStats.SUMMARY_NAME, RunStats.SNAPSHOT_NAME);
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /** Runs a restore as described by {@code args} and returns the process exit code. */
+    public static int run(String[] args) {
+        Arguments a;
+        try {
+            a = Arguments.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        if (a == null) {
+            System.out.print(USAGE);
+            return EXIT_OK;
+        }
+        for (Path input : a.options.inputs()) {
+            if (!Files.exists(input)) {
+                System.err.println("ERROR: Input not found: " + input);
+                return EXIT_USAGE;
+            }
+        }
+
+        if (a.options.plan() != null && !Files.exists(a.options.plan())) {
+            System.err.println("ERROR: Plan not found: " + a.options.plan());
+            return EXIT_USAGE;
+        }
+        if (a.planOnly) return plan(a);
+
+        PrintStream out = System.out;
+        RestoreEngine engine = new RestoreEngine(a.options, line -> {
+            if (a.verbose || !(line.startsWith("PROCESS") || line.startsWith("SUCCESS"))) out.println(line);
+        });
+
+        // Ctrl+C: let the files in progress finish and the journal close, then exit.
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            engine.cancel();
+            try { finished.await(30, TimeUnit.SECONDS); } catch (InterruptedException e) { /* Exiting anyway */ }
+        }, "restore-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "restore-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        if (a.progressSeconds > 0) {
+            long startNanos = System.nanoTime();
+            ticker.scheduleAtFixedRate(() -> printProgress(engine, startNanos),
+                    a.progressSeconds, a.progressSeconds, TimeUnit.SECONDS);
+        }
+
+        RunStats stats = engine.stats();
+        int exit;
+        try {
+            engine.run();
+            exit = engine.isCancelled() ? EXIT_CANCELLED : stats.failed() > 0 ? EXIT_FILES_FAILED : EXIT_OK;
+        } catch (IOException | RuntimeException e) {
+            exit = EXIT_ERROR;
+        } catch (InterruptedException e) {
+            exit = EXIT_CANCELLED;
+        } finally {
+            ticker.shutdownNow();
+        }
+
+        Path summary = a.summary != null ? a.summary : a.options.output().resolve(RunStats.SUMMARY_NAME);
+        try {
+            stats.writeJson(summary);
+            System.err.println("Summary: " + stats + " (" + summary + ")");
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not write summary " + summary + ": " + e.getMessage());
+            if (exit == EXIT_OK) exit = EXIT_ERROR;
+        }
+        finished.countDown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) { /* Already shutting down */ }
+        return exit;
+    }
+
+    /** Runs only the plan phase, writing nothing to the output. */
+    private static int plan(Arguments a) {
+        PrintStream out = System.out;
+        RestorePlanner planner = new RestorePlanner(a.options.inputs(), a.options.matchThreads(), a.options.virtualThreads(), out::println);
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            planner.cancel();
+            try { finished.await(30, TimeUnit.SECONDS); } catch (InterruptedException e) { /* Exiting anyway */ }
+        }, "plan-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        int exit;
+        try {
+            RestorePlanner.Summary summary = planner.plan(a.planFile);
+            System.err.println("Plan: " + summary + (a.planFile == null ? "" : " (" + a.planFile + ")"));
+            exit = planner.isCancelled() ? EXIT_CANCELLED : EXIT_OK;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            exit = EXIT_ERROR;
+        } catch (InterruptedException e) {
+            exit = EXIT_CANCELLED;
+        }
+        finished.countDown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) { /* Already shutting down */ }
+        return exit;
+    }
+
+    private static void printProgress(RestoreEngine engine, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        int done = engine.processed();
+        System.err.printf(Locale.ROOT, "Progress: %d/%d%s files, %.1f files/s, %d failed%n",
+                done, engine.discovered(), engine.isWalkFinished() ? "" : "+",
+                done / seconds, engine.stats().failed());
+    }
+
+    /** The parsed command line. */
+    private static final class Arguments {
+        RestoreOptions options;
+        Path summary;
+        int progressSeconds = 5;
+        boolean verbose;
+        /** Only plan, writing the plan to {@code planFile}, or nowhere for a dry run. */
+        boolean planOnly;
+        Path planFile;
+
+        /** Returns null if only help was asked for. */
+        static Arguments parse(String[] args) {
+            Arguments a = new Arguments();
+            List<Path> inputs = new ArrayList<>();
+            String output = null, exiftool = "exiftool";
+            int matchThreads = 0, copyThreads = 0, tagThreads = 0, exiftoolProcesses = 0, ioPerDevice = 0;
+            int metricsPort = 0, snapshotSeconds = 0;
+            RestoreEngine.OutputMode mode = RestoreEngine.OutputMode.DIRECT;
+            FileCopier.UnmodifiedMode unmodified = FileCopier.UnmodifiedMode.COPY;
+            DuplicateDetector.Policy duplicates = DuplicateDetector.Policy.OFF;
+            MetadataVerifier.Mode verify = MetadataVerifier.Mode.OFF;
+            boolean builtInWriter = true, resume = true, verifyCopies = true, virtualThreads = false;
+            Path executePlan = null;
+            int shard = 1, shards = 1;
+
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-h", "--help" -> { return null; }
+                    case "--input" -> inputs.add(Paths.get(value(args, ++i, arg)));
+                    case "--output" -> output = value(args, ++i, arg);
+                    case "--dry-run" -> a.planOnly = true;
+                    case "--plan" -> {
+                        a.planFile = Paths.get(value(args, ++i, arg));
+                        a.planOnly = true;
+                    }
+                    case "--execute-plan" -> executePlan = Paths.get(value(args, ++i, arg));
+                    case "--shard" -> {
+                        String v = value(args, ++i, arg);
+                        int slash = v.indexOf('/');
+                        if (slash < 0) throw new IllegalArgumentException(arg + " must look like N/M");
+                        shard = positive(v.substring(0, slash), arg);
+                        shards = positive(v.substring(slash + 1), arg);
+                        if (shard > shards) throw new IllegalArgumentException(arg + " must have N no larger than M");
+                    }
+                    case "--exiftool" -> exiftool = value(args, ++i, arg);
+                    case "--threads" -> matchThreads = copyThreads = tagThreads = positive(value(args, ++i, arg), arg);
+                    case "--match-threads" -> matchThreads = threads(value(args, ++i, arg), arg);
+                    case "--copy-threads" -> copyThreads = threads(value(args, ++i, arg), arg);
+                    case "--tag-threads" -> tagThreads = threads(value(args, ++i, arg), arg);
+                    case "--exiftool-processes" -> exiftoolProcesses = positive(value(args, ++i, arg), arg);
+                    case "--virtual-threads" -> virtualThreads = true;
+                    case "--io-per-device" -> ioPerDevice = positive(value(args, ++i, arg), arg);
+                    case "--mode" -> mode = choice(RestoreEngine.OutputMode.class, value(args, ++i, arg), arg);
+                    case "--unmodified" -> unmodified = choice(FileCopier.UnmodifiedMode.class, value(args, ++i, arg), arg);
+                    case "--duplicates" -> duplicates = choice(DuplicateDetector.Policy.class, value(args, ++i, arg), arg);
+                    case "--no-builtin-writer" -> builtInWriter = false;
+                    case "--no-resume" -> resume = false;
+                    case "--no-verify-copies" -> verifyCopies = false;
+                    case "--verify" -> verify = choice(MetadataVerifier.Mode.class, value(args, ++i, arg), arg);
+                    case "--summary" -> a.summary = Paths.get(value(args, ++i, arg));
+                    case "--progress-interval" -> a.progressSeconds = nonNegative(value(args, ++i, arg), arg);
+                    case "--metrics-port" -> metricsPort = positive(value(args, ++i, arg), arg);
+                    case "--snapshot-interval" -> snapshotSeconds = nonNegative(value(args, ++i, arg), arg);
+                    case "--verbose" -> a.verbose = true;
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (a.planOnly) {
+                if (executePlan != null) throw new IllegalArgumentException("--execute-plan cannot be combined with --dry-run or --plan");
+                if (inputs.isEmpty()) throw new IllegalArgumentException("--input is required");
+            } else if (executePlan != null) {
+                if (output == null) throw new IllegalArgumentException("--output is required");
+            } else {
+                if (inputs.isEmpty() || output == null) throw new IllegalArgumentException("--input and --output are required");
+                if (shards > 1) throw new IllegalArgumentException("--shard needs --execute-plan");
+            }
+            if (inputs.size() > 1 && inputs.stream().anyMatch(TakeoutArchive::isArchive)) {
+                throw new IllegalArgumentException("an archive must be the only --input");
+            }
+            a.options = new RestoreOptions(List.copyOf(inputs), executePlan, shard, shards,
+                    output == null ? null : Paths.get(output), exiftool,
+                    matchThreads, copyThreads, tagThreads, exiftoolProcesses, virtualThreads, ioPerDevice, mode, unmodified, builtInWriter, resume, verifyCopies, duplicates, verify,
+                    metricsPort, snapshotSeconds);
+            return a;
+        }
+
+        private static String value(String[] args, int i, String option) {
+            if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+            return args[i];
+        }
+
+        /** A thread count, or 0 for "auto". */
+        private static int threads(String value, String option) {
+            return value.equalsIgnoreCase("auto") ? 0 : positive(value, option);
+        }
+
+        private static int positive(String value, String option) {
+            int n = nonNegative(value, option);
+            if (n == 0) throw new IllegalArgumentException(option + " must be at least 1");
+            return n;
+        }
+
+        private static int nonNegative(String value, String option) {
+            try {
+                int n = Integer.parseInt(value);
+                if (n >= 0) return n;
+            } catch (NumberFormatException e) { /* Reported below */ }
+            throw new IllegalArgumentException(option + " expects a number, got: " + value);
+        }
+
+        /** Matches "copy-then-tag" to COPY_THEN_TAG and so on. */
+        private static <E extends Enum<E>> E choice(Class<E> type, String value, String option) {
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown value for " + option + ": " + value);
+            }
+        }
+    }
+}
@@ -0,0 +1,830 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * The restore itself: finds every media file, matches its sidecar and writes the
+ * metadata into the output. Has no UI of its own; the window ({@link ProcessingTask})
+ * and the command line ({@link RestoreCli}) drive it and listen to its log.
+ */
+public class RestoreEngine {
+    public enum OutputMode {
+        DIRECT("Write tagged file directly"),
+        COPY_THEN_TAG("Copy, then tag in place");
+        private final String displayName;
+        OutputMode(String d) { this.displayName = d; }
+        @Override public String toString() { return displayName; }
+    }
+
+    /** Receives the run's log lines and per-file progress, from any thread. */
+    public interface Listener {
+        void log(String line);
+        default void fileDone(String fileName) {}
+    }
+
+    private final RestoreOptions options;
+    private final Listener listener;
+    private final FileCopier copier;
+    private final NativeMetadataWriter nativeWriter;
+    private final DuplicateDetector duplicates;
+    private final SidecarIndexCache sidecars = new SidecarIndexCache();
+    private final RunStats stats = new RunStats();
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private volatile IntSupplier discovered = () -> 0;
+    private volatile boolean walkFinished = false;
+    private volatile boolean cancelled = false;
+    private final PauseGate pauseGate = new PauseGate();
+    private volatile LogFile logFile;
+    private volatile boolean logFileOpened = false;
+    private final Queue<String> beforeLogFile = new ConcurrentLinkedQueue<>();
+    private volatile ExifToolPool exiftool;
+    private MetadataVerifier verifier;        // Null unless checking the tags files already have
+    private MetadataVerifier.Report report;   // Null unless only reporting mismatches
+    private ProcessingJournal journal;
+    private StagePool matchStage, copyStage, tagStage;
+    private DeviceScheduler devices;
+    private StorageDevice outputDevice;
+    private volatile List<StagePool> stages = List.of();
+    /** With several inputs, the input each relative path was first found in. */
+    private Map<String, Path> claimedPaths;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int STAGE_BACKLOG = 256;
+    /** Returned by the tag steps instead of the output's checksum when they did not produce it. */
+    private static final long NOT_DONE = -2;
+
+    /** A matched media file on its way through the copy and tag stages. */
+    private record Job(Path root, StorageDevice device, Path file, Path outFile, String key, long size, long mtime,
+                       String json, SidecarMetadata meta, ProcessingJournal.Outcome outcome) {}
+
+    /** The work one stage does for a file. */
+    private interface Step {
+        void run(Job job) throws Exception;
+    }
+
+    /** The match stage's work for one file: matching it, or looking it up in the plan. */
+    private interface Match {
+        void run() throws Exception;
+    }
+
+    public RestoreEngine(RestoreOptions options, Listener listener) {
+        this.options = options;
+        this.listener = listener;
+        this.copier = new FileCopier(options.unmodifiedMode(), options.verifyCopies());
+        this.nativeWriter = options.builtInWriter() ? new NativeMetadataWriter() : null;
+        this.duplicates = options.duplicatePolicy() == DuplicateDetector.Policy.OFF || reportOnly() ? null : new DuplicateDetector();
+    }
+
+    /** Media files found so far. */
+    public int discovered() { return discovered.getAsInt(); }
+    /** Media files handled so far, including skipped ones. */
+    public int processed() { return processedCount.get(); }
+    /** True once discovery has finished, so {@link #discovered()} is final. */
+    public boolean isWalkFinished() { return walkFinished; }
+    public RunStats stats() { return stats; }
+
+    /** Runs the whole restore on the calling thread and returns its statistics. */
+    public RunStats run() throws IOException, InterruptedException {
+        try {
+            LogFile file = LogFile.open(options.output());
+            for (String line : beforeLogFile) file.write(line);
+            logFile = file;
+        } catch (IOException e) { log("WARN: Could not create log file: " + e.getMessage()); }
+        logFileOpened = true;
+        beforeLogFile.clear();
+        stats.gauge("discovered_files", this::discovered);
+        stats.gauge("processed_files", this::processed);
+        MetricsServer metrics = null;
+        if (options.metricsPort() > 0) {
+            try {
+                metrics = MetricsServer.start(options.metricsPort(), stats);
+                log("INFO: Metrics available at http://127.0.0.1:" + metrics.port() + "/metrics");
+            } catch (IOException e) { log("WARN: Could not start metrics endpoint: " + e.getMessage()); }
+        }
+        ScheduledExecutorService snapshots = null;
+        if (options.snapshotSeconds() > 0) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshots.scheduleAtFixedRate(this::writeSnapshot, options.snapshotSeconds(), options.snapshotSeconds(), TimeUnit.SECONDS);
+        }
+        try {
+            execute();
+            log("INFO: === " + (cancelled ? "PROCESS CANCELLED BY USER" : "PROCESS COMPLETE") + " ===");
+            return stats;
+        } catch (IOException | RuntimeException e) {
+            log("FATAL: An error occurred: " + e.getMessage());
+            throw e;
+        } finally {
+            stats.finish(cancelled);
+            if (metrics != null) metrics.close();
+            if (snapshots != null) {
+                snapshots.shutdownNow();
+                writeSnapshot();
+            }
+            LogFile file = logFile;
+            logFile = null;
+            if (file != null) file.close();
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            stats.writeJson(options.output().resolve(RunStats.SNAPSHOT_NAME));
+        } catch (IOException e) { log("WARN: Could not write metrics snapshot: " + e.getMessage()); }
+    }
+
+    private void execute() throws IOException, InterruptedException {
+        log("INFO: === STARTING PROCESS ===");
+        journal = ProcessingJournal.open(options.output());
+        if (options.resume() && journal.size() > 0) log("INFO: Loaded journal with " + journal.size() + " entries; unchanged files will be skipped.");
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        matchStage = stage("match", options.matchThreads(), Math.max(1, cpus / 2), 2 * cpus, QUEUE_CAPACITY);
+        copyStage = stage("copy", options.copyThreads(), 2, 16, STAGE_BACKLOG);
+        tagStage = stage("tag", options.tagThreads(), cpus, Math.max(4, 2 * cpus), STAGE_BACKLOG);
+        List<StagePool> stages = List.of(matchStage, copyStage, tagStage);
+        this.stages = stages;
+        StringBuilder sizes = new StringBuilder();
+        for (StagePool stage : stages) {
+            sizes.append(sizes.isEmpty() ? "" : ", ").append(stage.name()).append(' ').append(stage.threads())
+                    .append(stage.isAdaptive() ? " (adaptive, up to " + stage.maxThreads() + ")" : "");
+            stats.gauge(stage.name() + "_threads", stage::threads);
+            stats.gauge(stage.name() + "_queued", stage::queued);
+            stats.gauge(stage.name() + "_waiting_for_disk", stage::reserved);
+        }
+        log("INFO: Starting parallel processing with " + (options.virtualThreads() ? "virtual " : "") + "threads: " + sizes + ".");
+        exiftool = new ExifToolPool(options.exiftoolPath(),
+                options.exiftoolProcesses() > 0 ? options.exiftoolProcesses() : tagStage.maxThreads());
+        stats.gauge("exiftool_processes", exiftool::started);
+        stats.gauge("exiftool_busy", exiftool::busy);
+        if (options.verifyMode() != MetadataVerifier.Mode.OFF) {
+            verifier = new MetadataVerifier(nativeWriter != null ? nativeWriter : new NativeMetadataWriter(), exiftool);
+        }
+        if (reportOnly()) {
+            report = new MetadataVerifier.Report(options.output());
+            log("INFO: Only checking the metadata of the output; nothing will be written to it.");
+        }
+
+        // Resizes the adaptive stages in the background until the run ends.
+        ConcurrencyController controller = new ConcurrencyController(stages, this::log);
+        try {
+            List<Path> inputs = options.inputs();
+            if (options.plan() != null) inputs = executePlan(options.plan(), inputs);
+            else if (inputs.size() == 1 && TakeoutArchive.isArchive(inputs.get(0))) importArchive(inputs.get(0));
+            else walkAndProcess(inputs);
+            // Each stage only feeds the ones after it, so they can be drained in order.
+            for (StagePool stage : stages) stage.finish();
+            if (duplicates != null && !cancelled) {
+                long start = System.nanoTime();
+                placeDuplicates(inputs);
+                stats.time(RunStats.Stage.DUPLICATES, start);
+            }
+        } finally {
+            // On cancel or failure, stop whatever is still queued or running and wait for it, so no
+            // task outlives the run; then let the ExifTool workers exit cleanly.
+            controller.close();
+            for (StagePool stage : stages) stage.close();
+            exiftool.close();
+            journal.close();
+            if (report != null) {
+                report.close();
+                log("INFO: " + report.size() + " files with missing or different metadata or content. Report: " + options.output().resolve(MetadataVerifier.REPORT_NAME));
+            }
+        }
+        if (skippedCount.get() > 0) log("INFO: Skipped " + skippedCount.get() + " files already processed by an earlier run.");
+    }
+
+    private boolean reportOnly() { return options.verifyMode() == MetadataVerifier.Mode.REPORT_ONLY; }
+
+    /** A stage with {@code fixed} threads, or an adaptive one if that is 0. */
+    private StagePool stage(String name, int fixed, int initial, int max, int backlog) {
+        boolean virtual = options.virtualThreads();
+        return fixed > 0 ? StagePool.fixed(name, fixed, backlog, virtual) : new StagePool(name, Math.min(initial, max), max, backlog, virtual);
+    }
+
+    /**
+     * Walks every input folder at once, one thread each, so that folders on different
+     * disks are read side by side. The copy and tag work then goes through the device
+     * scheduler, which keeps each disk at the number of operations it handles well.
+     */
+    private void walkAndProcess(List<Path> roots) throws IOException, InterruptedException {
+        for (Path root : roots) {
+            if (TakeoutArchive.isArchive(root)) throw new IllegalArgumentException("An archive can only be restored on its own: " + root);
+        }
+        List<StorageDevice> rootDevices = setUpDevices(roots);
+        claimPaths(roots);
+        List<MediaWalker> walkers = new ArrayList<>();
+        for (int i = 0; i < roots.size(); i++) {
+            Path root = roots.get(i);
+            StorageDevice device = rootDevices.get(i);
+            walkers.add(new MediaWalker(file -> matchStage.submit(() -> match(root, file, () -> matchSingleFile(root, device, file))),
+                    sidecars, this::isCancelled, this::log));
+        }
+        discovered = () -> walkers.stream().mapToInt(MediaWalker::discovered).sum();
+
+        // Discovery blocks whenever the match stage falls behind; its fair backlog lets the walkers take turns.
+        long start = System.nanoTime();
+        boolean completed = MediaWalker.walkAll(walkers, roots);
+        stats.time(RunStats.Stage.DISCOVER, start);
+        walkFinished = true;
+        if (completed && !cancelled) log("INFO: Found " + discovered() + " media files to process.");
+    }
+
+    /**
+     * Runs the entries of a plan made by {@link RestorePlanner}, or of its shard, through
+     * the copy and tag stages; matching was done when the plan was made. The plan's
+     * input folders can be replaced by {@code inputs}, e.g. where another machine
+     * mounts them elsewhere. Returns the input folders used.
+     */
+    private List<Path> executePlan(Path planFile, List<Path> inputs) throws IOException, InterruptedException {
+        try (RestorePlan.Reader plan = RestorePlan.open(planFile)) {
+            List<Path> roots = inputs.isEmpty() ? plan.roots() : inputs;
+            if (roots.size() != plan.roots().size()) {
+                throw new IllegalArgumentException("The plan is for " + plan.roots().size() + " input folder(s), but " + roots.size() + " were given");
+            }
+            log("INFO: Executing plan " + planFile + (options.shards() > 1 ? ", shard " + options.shard() + " of " + options.shards() : "") + ".");
+            List<StorageDevice> rootDevices = setUpDevices(roots);
+            claimPaths(roots);
+            AtomicInteger planned = new AtomicInteger();
+            discovered = planned::get;
+            long start = System.nanoTime();
+            RestorePlan.Entry next;
+            while (!cancelled && (next = plan.next()) != null) {
+                if (!next.inShard(options.shard(), options.shards())) continue;
+                RestorePlan.Entry entry = next;
+                Path root = roots.get(entry.root());
+                Path file = root.resolve(entry.source());
+                StorageDevice device = rootDevices.get(entry.root());
+                if (!matchStage.submit(() -> match(root, file, () -> runPlanned(root, device, file, entry)))) break;
+                planned.incrementAndGet();
+            }
+            stats.time(RunStats.Stage.DISCOVER, start);
+            walkFinished = true;
+            if (!cancelled) log("INFO: Found " + planned.get() + " media files to process in the plan.");
+            return roots;
+        }
+    }
+
+    /** Detects the disks of the inputs and the output and starts scheduling per disk. Returns the inputs' disks. */
+    private List<StorageDevice> setUpDevices(List<Path> roots) throws IOException {
+        devices = new DeviceScheduler(options.ioPerDevice());
+        outputDevice = StorageDevice.of(options.output());
+        List<StorageDevice> used = new ArrayList<>(List.of(outputDevice));
+        List<StorageDevice> rootDevices = new ArrayList<>();
+        for (Path root : roots) {
+            StorageDevice device = StorageDevice.of(root);
+            rootDevices.add(device);
+            if (!used.contains(device)) used.add(device);
+            log("INFO: Input " + root + " is on " + device + ", " + limitText(device) + ".");
+        }
+        log("INFO: Output is on " + outputDevice + ", " + limitText(outputDevice) + ".");
+        for (StorageDevice device : used) {
+            String id = "device_" + device.name().replaceAll("[^A-Za-z0-9_]", "_");
+            stats.gauge(id + "_queued", () -> devices.queued(device));
+            stats.gauge(id + "_in_flight", () -> devices.inFlight(device));
+        }
+        return rootDevices;
+    }
+
+    private String limitText(StorageDevice device) {
+        return "up to " + devices.limit(device) + " operations at once";
+    }
+
+    /** Places every deferred duplicate from its group's output according to the policy. */
+    private void placeDuplicates(List<Path> inputs) throws IOException {
+        DuplicateDetector.Policy policy = options.duplicatePolicy();
+        FileCopier linker = policy == DuplicateDetector.Policy.HARDLINK ? new FileCopier(FileCopier.UnmodifiedMode.HARDLINK, options.verifyCopies())
+                : policy == DuplicateDetector.Policy.REFLINK ? new FileCopier(FileCopier.UnmodifiedMode.REFLINK, options.verifyCopies()) : null;
+        int placed = 0, count = 0;
+        for (DuplicateDetector.Group group : duplicates.groups()) {
+            Path original = group.original().output();
+            for (DuplicateDetector.Member dup : group.duplicates()) {
+                count++;
+                try {
+                    if (linker == null) {
+                        // Journaled all the same, so a resumed run keeps leaving it out.
+                        record(dup.journalKey(), dup.size(), dup.mtime(), null, null, ProcessingJournal.Outcome.DUPLICATE, FileCopier.NO_CHECKSUM);
+                        continue;
+                    }
+                    long checksum = FileCopier.NO_CHECKSUM;
+                    if (Files.exists(original)) {
+                        linker.placeUnmodified(original, dup.output());
+                        Files.setLastModifiedTime(dup.output(), Files.getLastModifiedTime(original));
+                    } else {
+                        // The original failed, so at least keep an untouched copy of this one.
+                        checksum = copier.copy(dup.source(), dup.output());
+                    }
+                    record(dup.journalKey(), dup.size(), dup.mtime(), null, null, ProcessingJournal.Outcome.DUPLICATE, checksum);
+                    placed++;
+                } catch (IOException e) {
+                    log("ERROR: Could not place duplicate " + dup.output().getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+        Path report = options.output().resolve(DuplicateDetector.REPORT_NAME);
+        duplicates.writeReport(report, inputs);
+        log("INFO: Found " + count + " duplicate files (" + placed + " placed as " + policy + "). Report: " + report);
+    }
+
+    private void importArchive(Path input) throws IOException, InterruptedException {
+        if (reportOnly()) throw new IllegalArgumentException("Only reporting mismatches needs the input as a folder, not an archive");
+        if (duplicates != null) log("INFO: Duplicate detection is not available for archive input and is skipped.");
+        List<Path> parts = TakeoutArchive.seriesOf(input);
+        log("INFO: Reading " + parts.size() + " archive part(s) directly, without extracting.");
+        ArchiveImporter importer = new ArchiveImporter(options.output(), tagStage, QUEUE_CAPACITY,
+                this::tagInPlace, journal, stats, options.resume(), this::log,
+                this::fileDone, this::isCancelled);
+        discovered = importer::discovered;
+        stats.gauge("archive_in_flight", importer::inFlight);
+        long start = System.nanoTime();
+        importer.importParts(parts);
+        stats.time(RunStats.Stage.DISCOVER, start);
+        walkFinished = true;
+        skippedCount.addAndGet(importer.skipped());
+        stats.skipped(importer.skipped());
+        if (!cancelled) log("INFO: Found " + importer.discovered() + " media files to process.");
+    }
+
+    private boolean tagInPlace(SidecarMetadata meta, Path file) {
+        try {
+            pauseGate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (cancelled) return false;
+        written(file); // Just extracted
+        if (verifier != null && hasMetadata(file, meta)) {
+            try {
+                setModifiedTime(file, meta);
+                stats.alreadyCorrect();
+                return true;
+            } catch (IOException e) { /* Write it instead */ }
+        }
+        return applyMetadata(meta, file, file) != NOT_DONE;
+    }
+
+    private void fileDone(String fileName) {
+        processedCount.incrementAndGet();
+        listener.fileDone(fileName);
+    }
+
+    /** Match stage: handles one file found by the walk or listed in the plan, and releases its directory's index. */
+    private void match(Path root, Path file, Match work) {
+        try {
+            pauseGate.await();
+            if (!cancelled) work.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (cancelled) return; // Interrupted by the cancel; not journaled, so redone next run
+            log("ERROR: Failed " + file.getFileName() + ": " + e.getMessage());
+            recordFailure(root, file);
+        } finally {
+            sidecars.release(file.getParent());
+        }
+    }
+
+    /** Runs one copy or tag step for a matched file, unless the run was cancelled meanwhile. */
+    private void runStep(Job job, Step step) {
+        try {
+            pauseGate.await();
+            if (!cancelled) step.run(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (cancelled) return;
+            log("ERROR: Failed " + job.file().getFileName() + ": " + e.getMessage());
+            recordFailure(job.root(), job.file());
+        }
+    }
+
+    private void recordFailure(Path root, Path file) {
+        stats.count(null, ProcessingJournal.Outcome.FAILED);
+        fileDone(file.getFileName().toString());
+        if (reportOnly()) return; // Leaves the journal as it was
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            journal.record(root.relativize(file).toString(), attrs.size(),
+                    attrs.lastModifiedTime().toMillis(), null, null, ProcessingJournal.Outcome.FAILED);
+        } catch (IOException e) { /* Not journaled, so it is retried next run anyway */ }
+    }
+
+    /**
+     * Journals a handled file and counts it in the run's statistics. {@code checksum} is the
+     * CRC32C of the output if it is known, or {@link FileCopier#NO_CHECKSUM}.
+     */
+    private void record(String source, long size, long mtime, String json, SidecarMetadata meta,
+                        ProcessingJournal.Outcome outcome, long checksum) throws IOException {
+        journal.record(source, size, mtime, json, meta == null ? null : meta.taken(), outcome, checksum);
+        stats.count(json, outcome);
+    }
+
+    /**
+     * Skips files done by an earlier run, matches and parses the sidecar, and schedules
+     * the file for copying and tagging.
+     */
+    private void matchSingleFile(Path root, StorageDevice device, Path file) throws Exception {
+        Path relative = root.relativize(file);
+        if (!claimPath(root, file, relative.toString())) return;
+        Path outFile = options.output().resolve(relative);
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size(), mtime = attrs.lastModifiedTime().toMillis();
+        if (skipIfDone(file, relative.toString(), size, mtime, outFile)) return;
+
+        log("PROCESS: Starting: " + file.getFileName());
+        String name = outFile.getFileName().toString();
+
+        long start = System.nanoTime();
+        Path jsonFile = sidecars.findMatchingJson(file);
+        stats.time(RunStats.Stage.MATCH, start);
+        SidecarMetadata meta = null;
+        ProcessingJournal.Outcome outcome = ProcessingJournal.Outcome.FAILED;
+        if (jsonFile == null) {
+            log("WARN: No matching JSON found for: " + file.getFileName());
+            outcome = ProcessingJournal.Outcome.COPIED;
+        } else {
+            log("SUCCESS: Found JSON for " + file.getFileName() + " -> " + jsonFile.getFileName());
+            start = System.nanoTime();
+            try {
+                meta = sidecars.readMetadata(jsonFile);
+                if (meta == null) {
+                    log("WARN: No timestamp in JSON for " + name);
+                    outcome = ProcessingJournal.Outcome.COPIED;
+                }
+            } catch (Exception e) { log("ERROR: Metadata failure for " + name + ": " + e.getMessage()); }
+            stats.time(RunStats.Stage.PARSE, start);
+        }
+
+        String json = jsonFile == null ? null : root.relativize(jsonFile).toString();
+        schedule(new Job(root, device, file, outFile, relative.toString(), size, mtime, json, meta, outcome));
+    }
+
+    /**
+     * Match stage for a planned file: the sidecar was matched and read when the plan was
+     * made. A file that has changed size since then is failed, to be planned again.
+     */
+    private void runPlanned(Path root, StorageDevice device, Path file, RestorePlan.Entry entry) throws Exception {
+        // Journaled with this platform's separator, as a walked run does, rather than the plan's "/".
+        String key = root.relativize(file).toString();
+        if (!claimPath(root, file, key)) return;
+        Path outFile = options.output().resolve(entry.destination());
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size(), mtime = attrs.lastModifiedTime().toMillis();
+        if (skipIfDone(file, key, size, mtime, outFile)) return;
+        if (size != entry.size()) {
+            log("ERROR: " + file.getFileName() + " has changed since the plan was made (" + entry.size() + " bytes, now " + size + "); make a new plan for it.");
+            recordFailure(root, file);
+            return;
+        }
+
+        log("PROCESS: Starting: " + file.getFileName());
+        SidecarMetadata meta = entry.meta();
+        Path jsonFile = entry.sidecar() == null ? null : root.resolve(entry.sidecar());
+        ProcessingJournal.Outcome outcome = ProcessingJournal.Outcome.FAILED;
+        if (jsonFile == null) {
+            log("WARN: No matching JSON found for: " + file.getFileName());
+            outcome = ProcessingJournal.Outcome.COPIED;
+        } else if (meta == null) {
+            // The plan does not tell a sidecar without a timestamp from one that could not be read.
+            try {
+                meta = SidecarMetadata.parse(jsonFile);
+                if (meta == null) {
+                    log("WARN: No timestamp in JSON for " + outFile.getFileName());
+                    outcome = ProcessingJournal.Outcome.COPIED;
+                }
+            } catch (Exception e) { log("ERROR: Metadata failure for " + outFile.getFileName() + ": " + e.getMessage()); }
+        }
+        String json = jsonFile == null ? null : root.relativize(jsonFile).toString();
+        schedule(new Job(root, device, file, outFile, key, size, mtime, json, meta, outcome));
+    }
+
+    /** With several inputs, starts checking that no relative path is found in two of them. */
+    private void claimPaths(List<Path> roots) {
+        if (roots.size() < 2) return;
+        if (roots.stream().map(r -> r.toAbsolutePath().normalize()).distinct().count() < roots.size()) {
+            throw new IllegalArgumentException("The same input folder is given more than once");
+        }
+        claimedPaths = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * False, and counted as failed, if another input has a file at the same relative path:
+     * both would be restored to the same output file under the same journal entry, so
+     * only the one found first is. Not journaled, as that entry belongs to the other file.
+     */
+    private boolean claimPath(Path root, Path file, String key) {
+        if (claimedPaths == null) return true;
+        Path owner = claimedPaths.putIfAbsent(key, root);
+        if (owner == null || owner.equals(root)) return true;
+        log("ERROR: " + key + " is in both " + owner + " and " + root + "; only the one in " + owner + " is restored.");
+        stats.count(null, ProcessingJournal.Outcome.FAILED);
+        fileDone(file.getFileName().toString());
+        return false;
+    }
+
+    /** True, and counted as skipped, if an earlier run already handled the unchanged file. */
+    private boolean skipIfDone(Path file, String key, long size, long mtime, Path outFile) {
+        // A report covers every file, whether done before or not.
+        if (reportOnly() || !options.resume() || !journal.isDone(key, size, mtime)) return false;
+        boolean skippedDuplicate = options.duplicatePolicy() == DuplicateDetector.Policy.SKIP && journal.isSkippedDuplicate(key, size, mtime);
+        if (!skippedDuplicate && !Files.exists(outFile)) return false;
+        skippedCount.incrementAndGet();
+        stats.skipped(1);
+        fileDone(file.getFileName().toString());
+        return true;
+    }
+
+    /**
+     * Defers the file if it duplicates one seen before; otherwise hands it to the tag
+     * stage, or to the copy stage if it needs a copy first or only a copy.
+     */
+    private void schedule(Job job) throws IOException, InterruptedException {
+        SidecarMetadata meta = job.meta();
+        if (reportOnly()) {
+            if (meta != null) devices.submit(tagStage, outputDevice, outputDevice, () -> runStep(job, this::verify));
+            else if (journal.checksum(job.key(), job.size(), job.mtime()) != FileCopier.NO_CHECKSUM) {
+                devices.submit(tagStage, outputDevice, outputDevice, () -> runStep(job, this::verifyCopy));
+            } else {
+                // Nothing to check it against.
+                stats.count(job.json(), ProcessingJournal.Outcome.COPIED);
+                fileDone(job.file().getFileName().toString());
+            }
+            return;
+        }
+        Files.createDirectories(job.outFile().getParent());
+        if (duplicates != null && duplicates.claim(new DuplicateDetector.Member(job.file(), job.outFile(), job.key(), job.size(), job.mtime()),
+                meta == null ? "-" : meta.taken().getEpochSecond() + "," + meta.latitude() + "," + meta.longitude())) {
+            log("INFO: Same content as an earlier file, deferred as duplicate: " + job.outFile().getFileName());
+            stats.duplicate();
+            fileDone(job.file().getFileName().toString());
+            return;
+        }
+        if (meta == null || options.outputMode() == OutputMode.COPY_THEN_TAG) devices.submit(copyStage, job.device(), outputDevice, () -> runStep(job, this::copy));
+        else devices.submit(tagStage, job.device(), outputDevice, () -> runStep(job, j -> tag(j, FileCopier.NO_CHECKSUM)));
+    }
+
+    /** Copy stage: places the file in the output, then hands it to the tag stage if it has metadata. */
+    private void copy(Job job) throws Exception {
+        long start = System.nanoTime();
+        long checksum = job.json() == null ? copier.placeUnmodified(job.file(), job.outFile()) : copier.copy(job.file(), job.outFile());
+        stats.time(RunStats.Stage.COPY, start);
+        written(job.outFile());
+        // Tagged in place, so only the output disk is involved. Never waits: this task holds device room.
+        if (job.meta() != null) devices.handOff(tagStage, outputDevice, outputDevice, () -> runStep(job, j -> tag(j, checksum)));
+        else finish(job, job.outcome(), checksum);
+    }
+
+    /**
+     * Tag stage: writes the metadata, in place after a copy or straight into the output.
+     * {@code copied} is the CRC32C of the copy made by the copy stage, if any.
+     */
+    private void tag(Job job, long copied) throws IOException {
+        boolean inPlace = options.outputMode() == OutputMode.COPY_THEN_TAG;
+        long checksum = verifier == null ? NOT_DONE : alreadyCorrect(job, inPlace, copied);
+        if (checksum != NOT_DONE) {
+            finish(job, ProcessingJournal.Outcome.TAGGED, checksum);
+            return;
+        }
+        ProcessingJournal.Outcome outcome = job.outcome();
+        checksum = applyMetadata(job.meta(), inPlace ? job.outFile() : job.file(), job.outFile());
+        if (checksum != NOT_DONE) {
+            outcome = ProcessingJournal.Outcome.TAGGED;
+        } else if (inPlace) {
+            checksum = copied; // The copy is left as it was
+        } else {
+            // Nothing was written, so fall back to an untagged copy to keep the output complete.
+            long start = System.nanoTime();
+            checksum = copier.copy(job.file(), job.outFile());
+            stats.time(RunStats.Stage.COPY, start);
+            written(job.outFile());
+        }
+        finish(job, outcome, checksum);
+    }
+
+    /**
+     * If the output, or else the source, already has the sidecar's values, completes the
+     * output without writing any tags and returns its CRC32C ({@link FileCopier#NO_CHECKSUM}
+     * if not known); otherwise returns {@link #NOT_DONE}. After a copy the output holds
+     * the source's tags, so the source is checked. An output left over from an earlier
+     * run is only checked if the journal shows it was made from the unchanged source;
+     * otherwise the source is checked and copied over it.
+     */
+    private long alreadyCorrect(Job job, boolean inPlace, long copied) throws IOException {
+        boolean keepOutput = !inPlace && journal.isDone(job.key(), job.size(), job.mtime()) && Files.exists(job.outFile());
+        if (!hasMetadata(keepOutput ? job.outFile() : job.file(), job.meta())) return NOT_DONE;
+        long checksum = inPlace ? copied : FileCopier.NO_CHECKSUM;
+        if (!inPlace && !keepOutput) {
+            long start = System.nanoTime();
+            checksum = copier.copy(job.file(), job.outFile());
+            stats.time(RunStats.Stage.COPY, start);
+            written(job.outFile());
+        }
+        setModifiedTime(job.outFile(), job.meta());
+        stats.alreadyCorrect();
+        log("SUCCESS: Metadata already correct in " + job.outFile().getFileName());
+        return checksum;
+    }
+
+    /** Report-only tag stage: compares the output's tags with the sidecar and writes nothing. */
+    private void verify(Job job) throws Exception {
+        String key = options.output().relativize(job.outFile()).toString();
+        long start = System.nanoTime();
+        boolean correct = false;
+        if (!Files.exists(job.outFile())) {
+            report.add(key, "missing", job.meta(), "-");
+            log("WARN: Not in the output: " + key);
+        } else {
+            MetadataVerifier.Result result = verifier.check(job.outFile(), job.meta());
+            correct = result.verdict() == MetadataVerifier.Verdict.MATCH;
+            if (!correct) {
+                report.add(key, result.verdict().name().toLowerCase(Locale.ROOT), job.meta(), result.found());
+                log("WARN: Metadata of " + key + " differs from its JSON: " + result.found());
+            } else {
+                long expected = journal.checksum(job.key(), job.size(), job.mtime());
+                if (expected != FileCopier.NO_CHECKSUM) correct = intact(key, job.outFile(), expected);
+            }
+        }
+        stats.time(RunStats.Stage.VERIFY, start);
+        stats.verified(correct);
+        fileDone(job.file().getFileName().toString());
+    }
+
+    /** True if {@code file} already has the sidecar's values. Any doubt counts as no, so they get written. */
+    private boolean hasMetadata(Path file, SidecarMetadata meta) {
+        long start = System.nanoTime();
+        try {
+            return verifier.check(file, meta).verdict() == MetadataVerifier.Verdict.MATCH;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            stats.time(RunStats.Stage.VERIFY, start);
+        }
+    }
+
+    /**
+     * Report-only stage for a file without metadata: compares the output with the CRC32C
+     * an earlier run recorded when it wrote it.
+     */
+    private void verifyCopy(Job job) throws Exception {
+        String key = options.output().relativize(job.outFile()).toString();
+        long expected = journal.checksum(job.key(), job.size(), job.mtime());
+        long start = System.nanoTime();
+        boolean correct = false;
+        if (!Files.exists(job.outFile())) {
+            report.addCopy(key, "missing", expected, "-");
+            log("WARN: Not in the output: " + key);
+        } else {
+            correct = intact(key, job.outFile(), expected);
+        }
+        stats.time(RunStats.Stage.VERIFY, start);
+        stats.verified(correct);
+        fileDone(job.file().getFileName().toString());
+    }
+
+    /** True if {@code file} still has the CRC32C journaled for it; reported as corrupt if not. */
+    private boolean intact(String key, Path file, long expected) throws IOException {
+        long found = FileCopier.checksum(file);
+        if (found == expected) return true;
+        report.addCopy(key, "corrupt", expected, "CRC32C=" + FileCopier.hex(found));
+        log("WARN: Content of " + key + " differs from what was written: CRC32C " + FileCopier.hex(found)
+                + " instead of " + FileCopier.hex(expected));
+        return false;
+    }
+
+    private void finish(Job job, ProcessingJournal.Outcome outcome, long checksum) throws IOException {
+        record(job.key(), job.size(), job.mtime(), job.json(), job.meta(), outcome, checksum);
+        fileDone(job.file().getFileName().toString());
+    }
+
+    /**
+     * Writes the sidecar's metadata into {@code target}. When {@code source} differs,
+     * the tagged result is written in one pass to a temporary file that replaces
+     * {@code target} once complete. JPEG, HEIC and MP4/MOV files are handled in-process
+     * where possible; everything else goes to ExifTool. Returns the CRC32C of a new
+     * {@code target} ({@link FileCopier#NO_CHECKSUM} if it is not known), or
+     * {@link #NOT_DONE}.
+     */
+    private long applyMetadata(SidecarMetadata meta, Path source, Path target) {
+        String name = target.getFileName().toString();
+        Path temp = FileCopier.tempFile(target);
+        try {
+            if (nativeWriter != null) {
+                long start = System.nanoTime();
+                long checksum = NOT_DONE;
+                if (source.equals(target)) {
+                    if (nativeWriter.write(source, target, meta)) checksum = FileCopier.NO_CHECKSUM;
+                } else {
+                    FileCopier.Patcher patcher = nativeWriter.patcher(source, meta);
+                    if (patcher != null) checksum = copier.copy(source, target, patcher);
+                }
+                stats.time(RunStats.Stage.TAG_BUILTIN, start);
+                if (checksum != NOT_DONE) {
+                    written(target);
+                    log("SUCCESS: Applied metadata to " + name + " (built-in writer)");
+                    setModifiedTime(target, meta);
+                    return checksum;
+                }
+            }
+
+            String exifDate = meta.exifDate();
+            List<String> cmd = new ArrayList<>(Arrays.asList("-DateTimeOriginal=" + exifDate, "-CreateDate=" + exifDate, "-ModifyDate=" + exifDate));
+            if (meta.hasGps()) {
+                cmd.add("-GPSLatitude=" + meta.latitude()); cmd.add("-GPSLongitude=" + meta.longitude());
+                cmd.add("-GPSLatitudeRef=" + (meta.latitude() >= 0 ? "N" : "S")); cmd.add("-GPSLongitudeRef=" + (meta.longitude() >= 0 ? "E" : "W"));
+            }
+            if (source.equals(target)) {
+                cmd.add(0, "-overwrite_original");
+            } else {
+                // ExifTool refuses to replace an existing file with -o; the temporary one is left from a killed run.
+                Files.deleteIfExists(temp);
+                cmd.add("-o"); cmd.add(temp.toString());
+            }
+            cmd.add(source.toString());
+
+            long start = System.nanoTime();
+            ExifToolPool.Result result = exiftool.execute(cmd);
+            stats.time(RunStats.Stage.EXIFTOOL, start);
+            if (result.isSuccess()) {
+                long checksum = source.equals(target) ? FileCopier.NO_CHECKSUM : copier.commit(temp, target);
+                written(target);
+                log("SUCCESS: Applied metadata to " + name);
+                setModifiedTime(target, meta);
+                return checksum;
+            }
+            log("ERROR: ExifTool failed for " + name + ": " + result.getOutput());
+        } catch (Exception e) {
+            if (!cancelled) log("ERROR: Metadata failure for " + name + ": " + e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) { /* Never renamed into place, so harmless */ }
+        return NOT_DONE;
+    }
+
+    /** Tells the verifier that {@code file} was written, so it does not trust tags it read before. */
+    private void written(Path file) {
+        if (verifier != null) verifier.written(file);
+    }
+
+    private void setModifiedTime(Path file, SidecarMetadata meta) throws IOException {
+        long start = System.nanoTime();
+        Files.setLastModifiedTime(file, FileTime.from(meta.taken()));
+        stats.time(RunStats.Stage.SET_MTIME, start);
+    }
+
+    /**
+     * Logs a line to the listener and the log file. Lines logged before {@link #run()}
+     * opens the file, e.g. by the caller setting up the run, are written to it first.
+     */
+    public void log(String line) {
+        LogFile file = logFile;
+        if (file != null) file.write(line);
+        else if (!logFileOpened) beforeLogFile.add(line);
+        listener.log(line);
+    }
+
+    /**
+     * Stops the run: queued files are dropped, copies in progress are interrupted and the
+     * ExifTool processes are killed mid-command. {@link #run()} then returns normally.
+     * Files that were not finished are not journaled, so the next run redoes them.
+     */
+    public void cancel() {
+        cancelled = true;
+        pauseGate.open();
+        for (StagePool stage : stages) stage.shutdownNow();
+        ExifToolPool pool = exiftool;
+        if (pool != null) pool.kill();
+    }
+
+    public boolean isCancelled() { return cancelled; }
+
+    public void setPaused(boolean p) {
+        if (p && !cancelled) pauseGate.close();
+        else pauseGate.open();
+    }
+
+    public boolean isPaused() { return pauseGate.isClosed(); }
+}
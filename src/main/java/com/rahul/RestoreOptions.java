@@ -0,0 +1,40 @@
+package com.rahul;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Everything a restore run is configured with, whether it was started from the
+ * window or from the command line.
+ *
+ * @param inputs            folders (or a single Takeout archive) to restore; folders may
+ *                          sit on different disks and are read in parallel
+ * @param plan              plan file made by {@link RestorePlanner} to execute instead of
+ *                          walking {@code inputs}, or null; {@code inputs} may then be
+ *                          empty, or replace the plan's input folders
+ * @param shard             which shard of the plan to execute, from 1
+ * @param shards            number of shards the plan is split into, 1 for all of it
+ * @param matchThreads      threads matching sidecars, or 0 to size the stage adaptively
+ * @param copyThreads       threads copying files, or 0 to size the stage adaptively
+ * @param tagThreads        threads writing metadata, or 0 to size the stage adaptively
+ * @param exiftoolProcesses maximum number of ExifTool processes kept open, or 0 for
+ *                          as many as the tag stage can have threads
+ * @param virtualThreads    run every task on its own virtual thread, with the thread
+ *                          counts above limiting how many run at once
+ * @param ioPerDevice       file operations in flight per disk, or 0 to go by the kind of
+ *                          disk (see {@link StorageDevice.Kind})
+ * @param verifyCopies      read every copy back and compare its CRC32C with the source's
+ *                          before it replaces the output file; the read usually comes from
+ *                          the page cache, so it checks the copy, not the disk's storage
+ * @param verifyMode        whether to check the tags a file already has first, and skip
+ *                          writing them if they are right, or only report mismatches
+ * @param metricsPort       local port for the Prometheus endpoint, or 0 for none
+ * @param snapshotSeconds   interval of the metrics snapshot file, or 0 for none
+ */
+public record RestoreOptions(List<Path> inputs, Path plan, int shard, int shards, Path output, String exiftoolPath,
+                             int matchThreads, int copyThreads, int tagThreads, int exiftoolProcesses, boolean virtualThreads, int ioPerDevice,
+                             RestoreEngine.OutputMode outputMode, FileCopier.UnmodifiedMode unmodifiedMode,
+                             boolean builtInWriter, boolean resume, boolean verifyCopies, DuplicateDetector.Policy duplicatePolicy,
+                             MetadataVerifier.Mode verifyMode,
+                             int metricsPort, int snapshotSeconds) {
+}
@@ -0,0 +1,165 @@
+package com.rahul;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * What a restore will do, worked out in advance by {@link RestorePlanner}: every media
+ * file with its destination, its sidecar, how that was matched and the timestamp and
+ * GPS read from it. A plan can be executed in shards, so several machines can share
+ * one large export.
+ *
+ * The file starts with a version line and one line per input folder; then each line
+ * is: input index, source (relative to that input), destination (relative to the
+ * output), sidecar (relative to the input), strategy, timestamp in epoch seconds,
+ * latitude, longitude, size; tab-separated, "-" where there is no value. Relative paths
+ * are always written with "/", so a plan made on Windows runs on Linux and the reverse.
+ */
+public final class RestorePlan {
+    private static final String HEADER = "#takeout-restorer-plan 1";
+    private static final String INPUT = "#input\t";
+
+    /**
+     * One media file of the plan, with "/"-separated paths (see {@link #path}) to be
+     * resolved against the input or output folder. {@code sidecar} and {@code meta} are
+     * null if there is none.
+     */
+    public record Entry(int root, String source, String destination, String sidecar,
+                        SidecarIndex.Strategy strategy, SidecarMetadata meta, long size) {
+
+        /**
+         * True if this entry belongs to shard {@code shard} (from 1) of {@code shards}.
+         * Decided by the destination alone, so every machine splits a plan the same way.
+         */
+        public boolean inShard(int shard, int shards) {
+            return shards <= 1 || Math.floorMod(destination.hashCode(), shards) == shard - 1;
+        }
+    }
+
+    private RestorePlan() {}
+
+    /** {@code relative} as the plan stores it, separated by "/" whatever the platform's separator. */
+    public static String path(Path relative) {
+        StringBuilder b = new StringBuilder();
+        for (Path name : relative) b.append(b.isEmpty() ? "" : "/").append(name);
+        return b.toString();
+    }
+
+    /** Creates a plan file for the given input folders; entries are added from any thread. */
+    public static Writer create(Path file, List<Path> roots) throws IOException {
+        return new Writer(file, roots);
+    }
+
+    /** Opens a plan file and reads its header. */
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    public static final class Writer implements AutoCloseable {
+        private final BufferedWriter out;
+        // Not synchronized: writing while holding a monitor would pin a virtual thread.
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Writer(Path file, List<Path> roots) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            out.write(HEADER + '\n');
+            for (int i = 0; i < roots.size(); i++) {
+                out.write(INPUT + i + '\t' + ProcessingJournal.escape(roots.get(i).toAbsolutePath().toString()) + '\n');
+            }
+        }
+
+        public void add(Entry e) throws IOException {
+            SidecarMetadata m = e.meta();
+            String line = e.root() + "\t" + ProcessingJournal.escape(e.source()) + '\t' + ProcessingJournal.escape(e.destination())
+                    + '\t' + (e.sidecar() == null ? "-" : ProcessingJournal.escape(e.sidecar()))
+                    + '\t' + (e.strategy() == null ? "-" : e.strategy())
+                    + '\t' + (m == null ? "-" : m.taken().getEpochSecond())
+                    + '\t' + (m == null || !m.hasGps() ? "-\t-" : m.latitude() + "\t" + m.longitude())
+                    + '\t' + e.size() + '\n';
+            lock.lock();
+            try {
+                out.write(line);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                out.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static final class Reader implements AutoCloseable {
+        private final Path file;
+        private final BufferedReader in;
+        private final List<Path> roots = new ArrayList<>();
+        private String pending;
+        private int lineNumber;
+
+        private Reader(Path file) throws IOException {
+            this.file = file;
+            in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            String line = readLine();
+            if (!HEADER.equals(line)) {
+                in.close();
+                throw new IOException(file + " is not a restore plan");
+            }
+            while ((line = readLine()) != null && line.startsWith(INPUT)) {
+                roots.add(Paths.get(ProcessingJournal.unescape(line.substring(line.indexOf('\t', INPUT.length()) + 1))));
+            }
+            pending = line;
+        }
+
+        /** The input folders the plan was made for, in the order its entries refer to them. */
+        public List<Path> roots() { return List.copyOf(roots); }
+
+        /** The next entry, or null at the end of the plan. */
+        public Entry next() throws IOException {
+            String line = pending != null ? pending : readLine();
+            pending = null;
+            if (line == null) return null;
+            String[] f = line.split("\t", -1);
+            try {
+                if (f.length != 9) throw new IllegalArgumentException("expected 9 fields, found " + f.length);
+                int root = Integer.parseInt(f[0]);
+                if (root < 0 || root >= roots.size()) throw new IllegalArgumentException("no input " + root);
+                SidecarMetadata meta = null;
+                if (!f[5].equals("-")) {
+                    boolean gps = !f[6].equals("-");
+                    meta = new SidecarMetadata(Instant.ofEpochSecond(Long.parseLong(f[5])), gps,
+                            gps ? Double.parseDouble(f[6]) : 0.0, gps ? Double.parseDouble(f[7]) : 0.0);
+                }
+                return new Entry(root, ProcessingJournal.unescape(f[1]), ProcessingJournal.unescape(f[2]),
+                        f[3].equals("-") ? null : ProcessingJournal.unescape(f[3]),
+                        f[4].equals("-") ? null : SidecarIndex.Strategy.valueOf(f[4]), meta, Long.parseLong(f[8]));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        private String readLine() throws IOException {
+            lineNumber++;
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+}
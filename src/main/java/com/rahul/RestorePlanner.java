@@ -0,0 +1,126 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+/**
+ * The plan phase on its own: walks the input folders, matches and reads every
+ * sidecar, and optionally writes the result as a {@link RestorePlan}. Nothing is
+ * written to the output, so a dry run shows what a restore would find in seconds.
+ */
+public class RestorePlanner {
+    private static final int BACKLOG = 1024;
+
+    /** What a plan found. Matched files have a sidecar with a timestamp; {@code failed} counts unreadable sidecars. */
+    public record Summary(int files, int matched, int noTimestamp, int unmatched, int failed,
+                          Map<SidecarIndex.Strategy, Integer> strategies, long elapsedMillis) {
+        @Override
+        public String toString() {
+            StringBuilder by = new StringBuilder();
+            strategies.forEach((s, n) -> { if (n > 0) by.append(by.isEmpty() ? "" : ", ").append(s.name().toLowerCase()).append(' ').append(n); });
+            return files + " media files: matched " + matched + (by.isEmpty() ? "" : " (" + by + ")")
+                    + ", no timestamp " + noTimestamp + ", unmatched " + unmatched + ", failed " + failed
+                    + " in " + Duration.ofMillis(elapsedMillis).toSeconds() + "s";
+        }
+    }
+
+    private final List<Path> inputs;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final Consumer<String> log;
+    private final SidecarIndexCache sidecars = new SidecarIndexCache();
+    private final AtomicInteger matched = new AtomicInteger(), noTimestamp = new AtomicInteger(),
+            unmatched = new AtomicInteger(), failed = new AtomicInteger();
+    private final AtomicIntegerArray strategies = new AtomicIntegerArray(SidecarIndex.Strategy.values().length);
+    private volatile boolean cancelled;
+    private volatile StagePool stage;
+
+    /** @param threads threads matching sidecars, or 0 for one per CPU */
+    public RestorePlanner(List<Path> inputs, int threads, boolean virtualThreads, Consumer<String> log) {
+        this.inputs = inputs;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.virtualThreads = virtualThreads;
+        this.log = log;
+    }
+
+    /** Plans every input folder, writing the plan to {@code planFile} unless it is null. */
+    public Summary plan(Path planFile) throws IOException, InterruptedException {
+        for (Path root : inputs) {
+            if (TakeoutArchive.isArchive(root)) throw new IllegalArgumentException("Plans can only be made for folders, not archives: " + root);
+        }
+        long start = System.nanoTime();
+        StagePool pool = StagePool.fixed("plan", threads, BACKLOG, virtualThreads);
+        stage = pool;
+        List<MediaWalker> walkers = new ArrayList<>();
+        // The pool is closed first, so no task writes to a closed plan after a cancel.
+        try (RestorePlan.Writer writer = planFile == null ? null : RestorePlan.create(planFile, inputs); pool) {
+            for (int i = 0; i < inputs.size(); i++) {
+                int index = i;
+                Path root = inputs.get(i);
+                walkers.add(new MediaWalker(file -> pool.submit(() -> plan(index, root, file, writer)), sidecars, () -> cancelled, log));
+            }
+            MediaWalker.walkAll(walkers, inputs);
+            pool.finish();
+        }
+        Map<SidecarIndex.Strategy, Integer> byStrategy = new EnumMap<>(SidecarIndex.Strategy.class);
+        for (SidecarIndex.Strategy s : SidecarIndex.Strategy.values()) byStrategy.put(s, strategies.get(s.ordinal()));
+        return new Summary(walkers.stream().mapToInt(MediaWalker::discovered).sum(), matched.get(), noTimestamp.get(),
+                unmatched.get(), failed.get(), byStrategy, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void plan(int index, Path root, Path file, RestorePlan.Writer writer) {
+        try {
+            if (cancelled) return;
+            String source = RestorePlan.path(root.relativize(file));
+            SidecarIndex.Match match = sidecars.findMatch(file);
+            String sidecar = null;
+            SidecarMetadata meta = null;
+            if (match == null) {
+                log.accept("WARN: No matching JSON found for: " + source);
+                unmatched.incrementAndGet();
+            } else {
+                Path json = file.resolveSibling(match.name());
+                sidecar = RestorePlan.path(root.relativize(json));
+                strategies.incrementAndGet(match.strategy().ordinal());
+                try {
+                    meta = sidecars.readMetadata(json);
+                    if (meta != null) {
+                        matched.incrementAndGet();
+                    } else {
+                        log.accept("WARN: No timestamp in JSON for " + source);
+                        noTimestamp.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    log.accept("ERROR: Metadata failure for " + source + ": " + e.getMessage());
+                    failed.incrementAndGet();
+                }
+            }
+            // The output mirrors the input's layout.
+            if (writer != null) writer.add(new RestorePlan.Entry(index, source, source, sidecar,
+                    match == null ? null : match.strategy(), meta, Files.size(file)));
+        } catch (IOException e) {
+            if (!cancelled) log.accept("ERROR: Failed " + file.getFileName() + ": " + e.getMessage());
+            failed.incrementAndGet();
+        } finally {
+            sidecars.release(file.getParent());
+        }
+    }
+
+    /** Stops planning; {@link #plan} then returns what was found so far. */
+    public void cancel() {
+        cancelled = true;
+        StagePool pool = stage;
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public boolean isCancelled() { return cancelled; }
+}
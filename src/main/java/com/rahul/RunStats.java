@@ -0,0 +1,182 @@
+package com.rahul;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counts, per-stage latency histograms and live gauges of one run, safe to update
+ * from every worker. Each stage records one sample per file (or per call) it handles,
+ * except discovery, which records the wall-clock time of the whole walk (or archive
+ * read), including time spent waiting for the workers to catch up.
+ */
+public class RunStats {
+    public static final String SUMMARY_NAME = "takeout-restorer-summary.json";
+    public static final String SNAPSHOT_NAME = "takeout-restorer-metrics.json";
+
+    public enum Stage {
+        DISCOVER, MATCH, PARSE, COPY, VERIFY, TAG_BUILTIN, EXIFTOOL, SET_MTIME, DUPLICATES;
+        public String label() { return name().toLowerCase(Locale.ROOT); }
+    }
+
+    private final Instant started = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private volatile long elapsedNanos = -1;
+    private volatile boolean cancelled;
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final Map<String, IntSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final LongAdder handled = new LongAdder(), matched = new LongAdder(), unmatched = new LongAdder(), tagged = new LongAdder(),
+            failed = new LongAdder(), skipped = new LongAdder(), duplicates = new LongAdder(),
+            alreadyCorrect = new LongAdder(), mismatched = new LongAdder();
+
+    public RunStats() {
+        for (int i = 0; i < stages.length; i++) stages[i] = new LatencyHistogram();
+    }
+
+    /** Records the time since {@code startNanos} (from {@link System#nanoTime()}) for a stage. */
+    public void time(Stage stage, long startNanos) {
+        stages[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram histogram(Stage stage) { return stages[stage.ordinal()]; }
+
+    /** Registers a value that is read whenever metrics are exported, e.g. a queue's depth. */
+    public void gauge(String name, IntSupplier value) { gauges.put(name, value); }
+
+    /** Counts a file by how it ended up; {@code json} is its sidecar, or null if none matched. */
+    public void count(String json, ProcessingJournal.Outcome outcome) {
+        if (outcome == ProcessingJournal.Outcome.DUPLICATE) return; // Counted when deferred
+        handled.increment();
+        if (json != null) matched.increment();
+        else if (outcome != ProcessingJournal.Outcome.FAILED) unmatched.increment();
+        if (outcome == ProcessingJournal.Outcome.TAGGED) tagged.increment();
+        if (outcome == ProcessingJournal.Outcome.FAILED) failed.increment();
+    }
+
+    public void skipped(int n) { skipped.add(n); }
+    public void duplicate() { duplicates.increment(); }
+    /** Counts a file whose metadata did not need writing; it is counted as tagged separately. */
+    public void alreadyCorrect() { alreadyCorrect.increment(); }
+
+    /** Counts a file checked by a report-only run. */
+    public void verified(boolean correct) {
+        handled.increment();
+        matched.increment();
+        if (correct) alreadyCorrect.increment();
+        else mismatched.increment();
+    }
+
+    /** Files that have been matched, copied or failed so far. */
+    public long handled() { return handled.sum(); }
+    public long failed() { return failed.sum(); }
+
+    public void finish(boolean cancelled) {
+        this.cancelled = cancelled;
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    private long elapsed() { return elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos; }
+
+    public JSONObject toJson() {
+        long elapsed = elapsed();
+        JSONObject stageJson = new JSONObject();
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = histogram(s);
+            stageJson.put(s.label(), new JSONObject()
+                    .put("count", h.count())
+                    .put("totalMillis", h.totalNanos() / 1_000_000)
+                    .put("p50Micros", h.percentileNanos(0.50) / 1000)
+                    .put("p99Micros", h.percentileNanos(0.99) / 1000)
+                    .put("maxMicros", h.maxNanos() / 1000));
+        }
+        JSONObject gaugeJson = new JSONObject();
+        gauges.forEach((name, value) -> gaugeJson.put(name, value.getAsInt()));
+        return new JSONObject()
+                .put("started", started.toString())
+                .put("elapsedMillis", elapsed / 1_000_000)
+                .put("finished", elapsedNanos >= 0)
+                .put("cancelled", cancelled)
+                .put("filesPerSecond", elapsed > 0 ? Math.round(handled.sum() * 1e10 / elapsed) / 10.0 : 0)
+                .put("matched", matched.sum())
+                .put("unmatched", unmatched.sum())
+                .put("tagged", tagged.sum())
+                .put("failed", failed.sum())
+                .put("skipped", skipped.sum())
+                .put("duplicates", duplicates.sum())
+                .put("alreadyCorrect", alreadyCorrect.sum())
+                .put("mismatched", mismatched.sum())
+                .put("stages", stageJson)
+                .put("gauges", gaugeJson);
+    }
+
+    /** Writes {@link #toJson()} to {@code file}, replacing it atomically so readers never see half a file. */
+    public void writeJson(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, toJson().toString(2), StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** The current values in the Prometheus text exposition format. */
+    public String toPrometheus() {
+        StringBuilder b = new StringBuilder(4096);
+        b.append("# HELP takeout_stage_seconds Time spent in each stage, per file or call.\n");
+        b.append("# TYPE takeout_stage_seconds summary\n");
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = histogram(s);
+            String label = "stage=\"" + s.label() + "\"";
+            b.append("takeout_stage_seconds{").append(label).append(",quantile=\"0.5\"} ").append(seconds(h.percentileNanos(0.50))).append('\n');
+            b.append("takeout_stage_seconds{").append(label).append(",quantile=\"0.99\"} ").append(seconds(h.percentileNanos(0.99))).append('\n');
+            b.append("takeout_stage_seconds_sum{").append(label).append("} ").append(seconds(h.totalNanos())).append('\n');
+            b.append("takeout_stage_seconds_count{").append(label).append("} ").append(h.count()).append('\n');
+        }
+        b.append("# HELP takeout_files_total Media files handled, by result.\n");
+        b.append("# TYPE takeout_files_total counter\n");
+        appendFiles(b, "matched", matched);
+        appendFiles(b, "unmatched", unmatched);
+        appendFiles(b, "tagged", tagged);
+        appendFiles(b, "failed", failed);
+        appendFiles(b, "skipped", skipped);
+        appendFiles(b, "duplicate", duplicates);
+        appendFiles(b, "already_correct", alreadyCorrect);
+        appendFiles(b, "mismatched", mismatched);
+        gauges.forEach((name, value) -> {
+            b.append("# TYPE takeout_").append(name).append(" gauge\n");
+            b.append("takeout_").append(name).append(' ').append(value.getAsInt()).append('\n');
+        });
+        b.append("# TYPE takeout_elapsed_seconds gauge\n");
+        b.append("takeout_elapsed_seconds ").append(seconds(elapsed())).append('\n');
+        return b.toString();
+    }
+
+    private static void appendFiles(StringBuilder b, String result, LongAdder value) {
+        b.append("takeout_files_total{result=\"").append(result).append("\"} ").append(value.sum()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.6f", nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return "matched " + matched.sum() + ", unmatched " + unmatched.sum() + ", failed " + failed.sum()
+                + ", skipped " + skipped.sum() + ", duplicates " + duplicates.sum()
+                + (alreadyCorrect.sum() > 0 ? ", already correct " + alreadyCorrect.sum() : "")
+                + (mismatched.sum() > 0 ? ", mismatched " + mismatched.sum() : "")
+                + " in " + Duration.ofNanos(elapsed()).toSeconds() + "s";
+    }
+}
@@ -0,0 +1,166 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index of the sidecar JSON names found in one directory.
+ * Built from a single directory scan and then shared by all workers, so matching
+ * a media file no longer lists the directory again.
+ */
+public final class SidecarIndex {
+    private static final String JSON = ".json";
+    private static final String SUPPLEMENTAL = "supplemental-metadata";
+    private static final Pattern COUNTER = Pattern.compile("(.*)(\\(\\d+\\))");
+    private static final int TRUNCATION = 46;
+    /** What Google Photos appends to an edited copy's name, which shares the original's sidecar. */
+    private static final String[] EDITED_SUFFIXES = {"-edited", "-bearbeitet", "-modifié", "-editado", "-modificato"};
+
+    /** How a sidecar was matched to its media file, from the most to the least certain. */
+    public enum Strategy { EXACT, SUPPLEMENTAL, TITLE, EDITED, PREFIX, TRUNCATED, FUZZY }
+
+    /** A matched sidecar name and the strategy that found it. */
+    public record Match(String name, Strategy strategy) {}
+
+    private final List<String> names;
+    private final Set<String> exact = new HashSet<>();
+    private final Map<String, String> byMedia = new HashMap<>();
+    private final Map<String, String> truncated = new HashMap<>();
+    private final String[] prefixBases;
+    private final String[] prefixNames;
+
+    private SidecarIndex(List<String> jsonNames) {
+        this.names = jsonNames;
+        List<String[]> prefixes = new ArrayList<>();
+        for (String name : jsonNames) {
+            exact.add(name);
+            String mediaName = mediaNameOf(name);
+            if (mediaName != null) byMedia.putIfAbsent(mediaName, name);
+
+            String base = name.substring(0, name.length() - JSON.length());
+            if (!base.isEmpty() && !name.contains(".supplement")) prefixes.add(new String[]{base, name});
+            if (base.length() > TRUNCATION) truncated.putIfAbsent(base.substring(0, TRUNCATION), name);
+        }
+        prefixes.sort((a, b) -> a[0].compareTo(b[0]));
+        prefixBases = new String[prefixes.size()];
+        prefixNames = new String[prefixes.size()];
+        for (int i = 0; i < prefixes.size(); i++) {
+            prefixBases[i] = prefixes.get(i)[0];
+            prefixNames[i] = prefixes.get(i)[1];
+        }
+    }
+
+    /** Indexes the given sidecar file names, in the order they were listed. */
+    public static SidecarIndex of(List<String> jsonNames) {
+        List<String> filtered = new ArrayList<>();
+        for (String n : jsonNames) if (n.endsWith(JSON)) filtered.add(n);
+        return new SidecarIndex(filtered);
+    }
+
+    /** Scans a directory once and indexes every "*.json" entry in it. */
+    public static SidecarIndex scan(Path dir) throws IOException {
+        List<String> found = new ArrayList<>();
+        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path json : dirStream) found.add(json.getFileName().toString());
+        }
+        return new SidecarIndex(found);
+    }
+
+    public int size() { return names.size(); }
+
+    /** Returns the name of the sidecar JSON that best matches a media file name, or null. */
+    public String find(String mediaFileName) {
+        Match match = match(mediaFileName);
+        return match == null ? null : match.name();
+    }
+
+    /** Like {@link #find}, but also tells which strategy matched. */
+    public Match match(String mediaFileName) {
+        int dot = mediaFileName.lastIndexOf('.');
+        String baseName = dot > 0 ? mediaFileName.substring(0, dot) : mediaFileName;
+
+        // Strategy 1: Perfect Match (e.g., "IMG_123.JPG.json")
+        if (exact.contains(mediaFileName + JSON)) return new Match(mediaFileName + JSON, Strategy.EXACT);
+
+        // Strategy 2: Newer Takeout variants (e.g., "IMG_123.JPG.supplemental-metadata.json",
+        // "IMG_123(1).JPG" -> "IMG_123.JPG(1).json" or "IMG_123.JPG.supplemental-metadata(1).json")
+        String match = byMedia.get(mediaFileName);
+        if (match != null) return new Match(match, Strategy.SUPPLEMENTAL);
+
+        // Strategy 3: Title Match (e.g., "IMG_123(1).JPG" -> "IMG_123.json")
+        if (exact.contains(baseName + JSON)) return new Match(baseName + JSON, Strategy.TITLE);
+
+        // Strategy 4: Edited copy (e.g., "IMG_123-edited.JPG" -> the sidecar of "IMG_123.JPG")
+        for (String suffix : EDITED_SUFFIXES) {
+            if (baseName.endsWith(suffix)) {
+                Match original = match(baseName.substring(0, baseName.length() - suffix.length()) + mediaFileName.substring(baseName.length()));
+                if (original != null) return new Match(original.name(), Strategy.EDITED);
+            }
+        }
+
+        // Strategy 5: Longest Prefix Match (Handles truncated names safely)
+        for (int len = baseName.length(); len > 0; len--) {
+            int i = Arrays.binarySearch(prefixBases, baseName.substring(0, len));
+            if (i >= 0) return new Match(prefixNames[i], Strategy.PREFIX);
+        }
+
+        // Strategy 6: 46-character truncation check (Google Takeout behavior)
+        if (baseName.length() > TRUNCATION) {
+            match = truncated.get(baseName.substring(0, TRUNCATION));
+            if (match != null) return new Match(match, Strategy.TRUNCATED);
+        }
+
+        // Strategy 7: Fallback to Original Fuzzy Truncation Logic
+        for (String jsonName : names) {
+            String jsonBase = jsonName.substring(0, jsonName.length() - JSON.length());
+            for (int t = 1; t <= 5; t++) {
+                if (baseName.length() > t) {
+                    if (jsonBase.startsWith(baseName.substring(0, baseName.length() - t)) && baseName.length() - t > 10) return new Match(jsonName, Strategy.FUZZY);
+                }
+                if (jsonBase.length() > t) {
+                    if (baseName.startsWith(jsonBase.substring(0, jsonBase.length() - t)) && jsonBase.length() - t > 10) return new Match(jsonName, Strategy.FUZZY);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Derives the media file name a supplemental or numbered sidecar describes, e.g.
+     * "IMG.JPG.supplemental-metadata(1).json" -> "IMG(1).JPG". The suffix may itself be
+     * truncated ("IMG.JPG.supplemental-met.json"). Returns null for plain sidecars.
+     */
+    static String mediaNameOf(String jsonName) {
+        String s = jsonName.substring(0, jsonName.length() - JSON.length());
+        String counter = "";
+        Matcher m = COUNTER.matcher(s);
+        if (m.matches()) {
+            s = m.group(1);
+            counter = m.group(2);
+        }
+        boolean supplemental = false;
+        int dot = s.lastIndexOf('.');
+        if (dot > 0) {
+            String tail = s.substring(dot + 1);
+            if (!tail.isEmpty() && SUPPLEMENTAL.startsWith(tail)) {
+                s = s.substring(0, dot);
+                supplemental = true;
+            }
+        }
+        if (!supplemental && counter.isEmpty()) return null;
+        if (counter.isEmpty()) return s;
+        int ext = s.lastIndexOf('.');
+        return ext > 0 ? s.substring(0, ext) + counter + s.substring(ext) : s + counter;
+    }
+}
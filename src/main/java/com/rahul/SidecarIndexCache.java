@@ -0,0 +1,99 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares one {@link SidecarIndex} per directory between all workers, together with
+ * the metadata already parsed from that directory's sidecars (one sidecar is often
+ * matched by an original and several edited or "(1)" variants).
+ * The producer retains a directory for every media file it queues and seals it once
+ * the walk has left it; the index is evicted when it is sealed and no queued file
+ * still needs it.
+ */
+public class SidecarIndexCache {
+
+    /** Cached result for a sidecar that carries no timestamp. */
+    private static final SidecarMetadata NO_TIMESTAMP = new SidecarMetadata(Instant.EPOCH, false, 0.0, 0.0);
+
+    private static final class Entry {
+        int pending;
+        boolean sealed;
+        private volatile SidecarIndex index;
+        // Not synchronized: scanning while holding a monitor would pin a virtual thread.
+        private final ReentrantLock scanLock = new ReentrantLock();
+        final ConcurrentHashMap<String, SidecarMetadata> metadata = new ConcurrentHashMap<>();
+
+        SidecarIndex index(Path dir) throws IOException {
+            SidecarIndex i = index;
+            if (i != null) return i;
+            scanLock.lock();
+            try {
+                if (index == null) index = SidecarIndex.scan(dir);
+                return index;
+            } finally {
+                scanLock.unlock();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    /** Records that a media file in {@code dir} has been queued. */
+    public void retain(Path dir) {
+        entries.compute(dir, (k, e) -> {
+            if (e == null) e = new Entry();
+            e.pending++;
+            return e;
+        });
+    }
+
+    /** Records that a queued media file in {@code dir} has been handled. */
+    public void release(Path dir) {
+        entries.computeIfPresent(dir, (k, e) -> --e.pending <= 0 && e.sealed ? null : e);
+    }
+
+    /** Marks that no more media files from {@code dir} will be queued. */
+    public void seal(Path dir) {
+        entries.computeIfPresent(dir, (k, e) -> {
+            e.sealed = true;
+            return e.pending <= 0 ? null : e;
+        });
+    }
+
+    /** Number of directory indexes currently held in memory. */
+    public int size() { return entries.size(); }
+
+    /** Finds the sidecar JSON for a media file using its directory's shared index. */
+    public Path findMatchingJson(Path mediaFile) throws IOException {
+        SidecarIndex.Match match = findMatch(mediaFile);
+        return match == null ? null : mediaFile.resolveSibling(match.name());
+    }
+
+    /** Like {@link #findMatchingJson}, but returns the sidecar's name together with the strategy that matched. */
+    public SidecarIndex.Match findMatch(Path mediaFile) throws IOException {
+        Path dir = mediaFile.getParent();
+        Entry e = entries.get(dir);
+        SidecarIndex index = e != null ? e.index(dir) : SidecarIndex.scan(dir);
+        return index.match(mediaFile.getFileName().toString());
+    }
+
+    /**
+     * Parses a sidecar, reusing the result if another media file in the same directory
+     * already matched it. Returns null if it carries no timestamp.
+     */
+    public SidecarMetadata readMetadata(Path jsonFile) throws IOException {
+        Entry e = entries.get(jsonFile.getParent());
+        if (e == null) return SidecarMetadata.parse(jsonFile);
+        String name = jsonFile.getFileName().toString();
+        SidecarMetadata meta = e.metadata.get(name);
+        if (meta == null) {
+            meta = SidecarMetadata.parse(jsonFile);
+            e.metadata.putIfAbsent(name, meta == null ? NO_TIMESTAMP : meta);
+        }
+        return meta == NO_TIMESTAMP ? null : meta;
+    }
+}
@@ -0,0 +1,201 @@
+package com.rahul;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Pulls the handful of fields the restorer needs out of a sidecar JSON file
+ * (photoTakenTime.timestamp, creationTime.timestamp and geoData.latitude/longitude)
+ * in a single pass over the raw bytes. Everything else is skipped without building
+ * a document tree. Missing objects simply leave the corresponding field unset.
+ */
+public final class SidecarJsonExtractor {
+    private static final long ABSENT = Long.MIN_VALUE;
+    private static final byte[] PHOTO_TAKEN_TIME = ascii("photoTakenTime");
+    private static final byte[] CREATION_TIME = ascii("creationTime");
+    private static final byte[] GEO_DATA = ascii("geoData");
+    private static final byte[] TIMESTAMP = ascii("timestamp");
+    private static final byte[] LATITUDE = ascii("latitude");
+    private static final byte[] LONGITUDE = ascii("longitude");
+
+    private final byte[] b;
+    private int i;
+
+    private SidecarJsonExtractor(byte[] json) {
+        this.b = json;
+        // Skip a UTF-8 byte order mark if present.
+        this.i = json.length >= 3 && (json[0] & 0xFF) == 0xEF && (json[1] & 0xFF) == 0xBB && (json[2] & 0xFF) == 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Extracts the sidecar fields. Returns null if neither timestamp is present.
+     *
+     * @throws IllegalArgumentException if the input is not well-formed JSON
+     */
+    public static SidecarMetadata extract(byte[] json) {
+        return new SidecarJsonExtractor(json).root();
+    }
+
+    private SidecarMetadata root() {
+        long photoTaken = ABSENT, creation = ABSENT;
+        double latitude = 0.0, longitude = 0.0;
+
+        expect('{');
+        if (!consume('}')) {
+            do {
+                int keyStart = stringStart();
+                int keyEnd = skipString();
+                expect(':');
+                if (keyEquals(keyStart, keyEnd, PHOTO_TAKEN_TIME)) {
+                    photoTaken = timestamp();
+                } else if (keyEquals(keyStart, keyEnd, CREATION_TIME)) {
+                    creation = timestamp();
+                } else if (keyEquals(keyStart, keyEnd, GEO_DATA) && peek() == '{') {
+                    expect('{');
+                    if (!consume('}')) {
+                        do {
+                            int ks = stringStart();
+                            int ke = skipString();
+                            expect(':');
+                            if (keyEquals(ks, ke, LATITUDE)) latitude = number();
+                            else if (keyEquals(ks, ke, LONGITUDE)) longitude = number();
+                            else skipValue();
+                        } while (consume(','));
+                        expect('}');
+                    }
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+
+        long ts = photoTaken != ABSENT ? photoTaken : creation;
+        if (ts == ABSENT) return null;
+        Instant taken = Instant.ofEpochSecond(ts);
+        return latitude != 0.0
+                ? new SidecarMetadata(taken, true, latitude, longitude)
+                : new SidecarMetadata(taken, false, 0.0, 0.0);
+    }
+
+    /** Reads {"timestamp": "..."} (string or number) from an object value; ABSENT otherwise. */
+    private long timestamp() {
+        if (peek() != '{') {
+            skipValue();
+            return ABSENT;
+        }
+        long result = ABSENT;
+        expect('{');
+        if (consume('}')) return ABSENT;
+        do {
+            int ks = stringStart();
+            int ke = skipString();
+            expect(':');
+            if (keyEquals(ks, ke, TIMESTAMP)) {
+                if (peek() == '"') {
+                    int start = stringStart();
+                    int end = skipString();
+                    result = parseLong(start, end);
+                } else {
+                    result = (long) number();
+                }
+            } else {
+                skipValue();
+            }
+        } while (consume(','));
+        expect('}');
+        return result;
+    }
+
+    private long parseLong(int start, int end) {
+        if (start == end) throw error("empty timestamp");
+        boolean negative = b[start] == '-';
+        long v = 0;
+        for (int p = negative ? start + 1 : start; p < end; p++) {
+            int d = b[p] - '0';
+            if (d < 0 || d > 9) throw error("invalid timestamp");
+            v = v * 10 + d;
+        }
+        return negative ? -v : v;
+    }
+
+    private double number() {
+        skipWhitespace();
+        int start = i;
+        while (i < b.length && "+-0123456789.eE".indexOf(b[i]) >= 0) i++;
+        if (start == i) {
+            skipValue(); // null or a string where a number was expected
+            return 0.0;
+        }
+        return Double.parseDouble(new String(b, start, i - start, StandardCharsets.ISO_8859_1));
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        if (i >= b.length) throw error("unexpected end");
+        switch (b[i]) {
+            case '"': stringStart(); skipString(); return;
+            case '{': case '[':
+                int depth = 0;
+                do {
+                    byte c = b[i];
+                    if (c == '"') { stringStart(); skipString(); continue; }
+                    if (c == '{' || c == '[') depth++;
+                    else if (c == '}' || c == ']') depth--;
+                    i++;
+                } while (depth > 0 && i < b.length);
+                if (depth > 0) throw error("unterminated container");
+                return;
+            default:
+                while (i < b.length && b[i] != ',' && b[i] != '}' && b[i] != ']' && b[i] > ' ') i++;
+        }
+    }
+
+    /** Positions after the opening quote of a string and returns that position. */
+    private int stringStart() {
+        expect('"');
+        return i;
+    }
+
+    /** Advances past the closing quote; returns the position of that quote. */
+    private int skipString() {
+        while (i < b.length) {
+            byte c = b[i++];
+            if (c == '\\') i++;
+            else if (c == '"') return i - 1;
+        }
+        throw error("unterminated string");
+    }
+
+    private boolean keyEquals(int start, int end, byte[] key) {
+        if (end - start != key.length) return false;
+        for (int k = 0; k < key.length; k++) if (b[start + k] != key[k]) return false;
+        return true;
+    }
+
+    private byte peek() {
+        skipWhitespace();
+        if (i >= b.length) throw error("unexpected end");
+        return b[i];
+    }
+
+    private boolean consume(char c) {
+        if (peek() != c) return false;
+        i++;
+        return true;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) throw error("expected '" + c + "'");
+    }
+
+    private void skipWhitespace() {
+        while (i < b.length && (b[i] == ' ' || b[i] == '\n' || b[i] == '\r' || b[i] == '\t')) i++;
+    }
+
+    private IllegalArgumentException error(String what) {
+        return new IllegalArgumentException("Malformed sidecar JSON at byte " + i + ": " + what);
+    }
+
+    private static byte[] ascii(String s) { return s.getBytes(StandardCharsets.US_ASCII); }
+}
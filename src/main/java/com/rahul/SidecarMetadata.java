@@ -0,0 +1,36 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The few fields of a Takeout sidecar JSON that are written back into the media:
+ * when the photo was taken and, if known, where.
+ */
+public record SidecarMetadata(Instant taken, boolean hasGps, double latitude, double longitude) {
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    /** Reads a sidecar file. Returns null if it carries no timestamp. */
+    public static SidecarMetadata parse(Path jsonFile) throws IOException {
+        return parse(Files.readAllBytes(jsonFile));
+    }
+
+    /**
+     * Parses raw sidecar JSON. Returns null if it carries no timestamp.
+     *
+     * @throws IllegalArgumentException if the content is not well-formed JSON
+     */
+    public static SidecarMetadata parse(byte[] jsonContent) {
+        return SidecarJsonExtractor.extract(jsonContent);
+    }
+
+    /** The timestamp in EXIF's "yyyy:MM:dd HH:mm:ss" form, in UTC. */
+    public String exifDate() {
+        return LocalDateTime.ofInstant(taken, ZoneOffset.UTC).format(EXIF_DATE);
+    }
+}
@@ -0,0 +1,211 @@
+package com.rahul;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The threads of one pipeline stage (match, copy or tag). The number of threads can
+ * be changed while the stage runs, and {@link #submit} blocks once {@code backlog}
+ * tasks are waiting, so a slow stage holds back the one feeding it instead of
+ * queueing the whole run in memory.
+ *
+ * <p>With virtual threads every task gets its own thread, and the stage's size limits
+ * how many of them run at once. Either way {@link #close()} interrupts whatever is
+ * still running and waits for it, so no task outlives the run that started it.
+ */
+public class StagePool implements AutoCloseable {
+    private static final long POLL_MILLIS = 100;
+
+    /** A semaphore whose permits can also be taken away, for shrinking a virtual stage or overdrawing the backlog. */
+    private static final class Limit extends Semaphore {
+        private static final long serialVersionUID = 1L;
+        Limit(int permits, boolean fair) { super(permits, fair); }
+        void reduce(int n) { reducePermits(n); }
+    }
+
+    private final String name;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor platform; // Null with virtual threads
+    private final Limit limit;                 // Null with platform threads
+    private final Limit slots;
+    private final int capacity;
+    private final int minThreads, maxThreads;
+    private final boolean adaptive;
+    private volatile int threads;
+    private final LongAdder completed = new LongAdder(), busyNanos = new LongAdder();
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    /**
+     * @param threads    initial number of threads
+     * @param maxThreads upper bound for {@link #setThreads}; equal to {@code threads} for a fixed size
+     * @param backlog    tasks that may wait for a thread before {@link #submit} blocks
+     * @param virtual    run each task on its own virtual thread
+     */
+    public StagePool(String name, int threads, int maxThreads, int backlog, boolean virtual) {
+        this.name = name;
+        this.minThreads = 1;
+        this.maxThreads = Math.max(threads, maxThreads);
+        this.adaptive = this.maxThreads > threads;
+        this.threads = threads;
+        this.capacity = backlog + this.maxThreads;
+        this.slots = new Limit(capacity, true); // Fair, so several producers take turns
+        if (virtual) {
+            this.platform = null;
+            this.limit = new Limit(threads, false);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        } else {
+            AtomicInteger ids = new AtomicInteger();
+            this.limit = null;
+            this.platform = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, name + "-" + ids.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.executor = platform;
+        }
+    }
+
+    /** A pool that always keeps {@code threads} threads. */
+    public static StagePool fixed(String name, int threads, int backlog, boolean virtual) {
+        return new StagePool(name, threads, threads, backlog, virtual);
+    }
+
+    public String name() { return name; }
+    /** True if the pool may be resized by a {@link ConcurrencyController}. */
+    public boolean isAdaptive() { return adaptive; }
+    public int minThreads() { return minThreads; }
+    public int maxThreads() { return maxThreads; }
+    public int threads() { return threads; }
+    /** Tasks waiting for a thread. */
+    public int queued() { return platform != null ? platform.getQueue().size() : limit.getQueueLength(); }
+    /** Tasks whose backlog room is taken but that are not handed to the stage yet, e.g. waiting in a {@link DeviceScheduler} for their disk. */
+    public int reserved() { return reserved.get(); }
+    /** Tasks finished so far. */
+    public long completed() { return completed.sum(); }
+    /** Time spent running tasks so far, summed over all threads. */
+    public long busyNanos() { return busyNanos.sum(); }
+
+    /**
+     * Runs {@code task} on one of the stage's threads, waiting while the backlog is full.
+     * Returns false, without running it, if the stage has been shut down.
+     */
+    public boolean submit(Runnable task) throws InterruptedException {
+        return reserve() && dispatch(task);
+    }
+
+    /**
+     * Waits for room in the backlog and takes it, for a task that will be passed to
+     * {@link #dispatch} later. Returns false if the stage has been shut down.
+     */
+    boolean reserve() throws InterruptedException {
+        while (!slots.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (executor.isShutdown()) return false;
+        }
+        reserved.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Takes room in the backlog even if it is full. For hand-offs from a task that
+     * holds something the stage's own tasks may need, where waiting could deadlock.
+     */
+    void reserveNow() {
+        slots.reduce(1);
+        reserved.incrementAndGet();
+    }
+
+    /** Runs a task whose backlog room was taken by {@link #reserve}; false if the stage was shut down. */
+    boolean dispatch(Runnable task) {
+        reserved.decrementAndGet();
+        try {
+            executor.execute(() -> run(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            return false;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            if (limit != null) limit.acquire();
+        } catch (InterruptedException e) {
+            slots.release();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            busyNanos.add(System.nanoTime() - start);
+            completed.increment();
+            if (limit != null) limit.release();
+            slots.release();
+        }
+    }
+
+    /**
+     * Changes the number of threads, clamped to the pool's bounds. Surplus threads
+     * leave once their current task is done. Returns the new size.
+     */
+    public synchronized int setThreads(int threads) {
+        int n = Math.max(minThreads, Math.min(maxThreads, threads));
+        if (limit != null) {
+            if (n > this.threads) limit.release(n - this.threads);
+            else if (n < this.threads) limit.reduce(this.threads - n);
+        } else if (n > platform.getMaximumPoolSize()) {
+            // The JDK rejects a core size above the maximum, so change them in a safe order.
+            platform.setMaximumPoolSize(n);
+            platform.setCorePoolSize(n);
+        } else {
+            platform.setCorePoolSize(n);
+            platform.setMaximumPoolSize(n);
+        }
+        this.threads = n;
+        return n;
+    }
+
+    /**
+     * Waits for every task submitted or reserved so far to finish, then shuts the stage
+     * down. Returns early if the stage is shut down meanwhile (on cancel).
+     */
+    public void finish() throws InterruptedException {
+        boolean idle;
+        while (!(idle = slots.tryAcquire(capacity, POLL_MILLIS, TimeUnit.MILLISECONDS))) {
+            if (executor.isShutdown()) break;
+        }
+        try {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } finally {
+            if (idle) slots.release(capacity);
+        }
+    }
+
+    public boolean isShutdown() { return executor.isShutdown(); }
+
+    /** Drops the queued tasks and interrupts the running ones, e.g. a copy in progress. */
+    public void shutdownNow() { executor.shutdownNow(); }
+
+    /** Shuts the stage down now and waits until none of its tasks is running any more. */
+    @Override
+    public void close() {
+        shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.DAYS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,81 @@
+package com.rahul;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The disk a path lives on, found through its {@link FileStore}, and how many file
+ * operations it should be given at once: few for a spinning disk, where parallel
+ * reads turn into seeks, many for an SSD. On Linux the kind is read from
+ * /sys/class/block; elsewhere, and for virtual filesystems, it is unknown, and each
+ * file store (a drive letter, a mount) counts as a device of its own.
+ */
+public final class StorageDevice {
+    public enum Kind {
+        // Unknown devices may be spinning disks: few enough for those not to thrash, enough for an SSD to keep busy.
+        HDD(2), SSD(16), NVME(64), UNKNOWN(8);
+        /** Default number of file operations in flight. */
+        public final int concurrency;
+        Kind(int concurrency) { this.concurrency = concurrency; }
+    }
+
+    // Keyed by whole disk, so two partitions of one spindle share a device; by FileStore where the disk is not known,
+    // as its name is only a volume label, which several drives may share or leave empty.
+    private static final ConcurrentHashMap<Object, StorageDevice> DEVICES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Kind kind;
+
+    private StorageDevice(String name, Kind kind) {
+        this.name = name;
+        this.kind = kind;
+    }
+
+    /** The device holding {@code path}, or its nearest existing parent; the same instance for every path on it. */
+    public static StorageDevice of(Path path) throws IOException {
+        Path p = path.toAbsolutePath();
+        while (p != null && !Files.exists(p)) p = p.getParent();
+        if (p == null) throw new IOException("No existing parent for " + path);
+        FileStore store = Files.getFileStore(p);
+        Path block = blockDevice(store.name());
+        if (block == null) return DEVICES.computeIfAbsent(store, s -> new StorageDevice(s.toString(), Kind.UNKNOWN));
+        String disk = block.getFileName().toString();
+        return DEVICES.computeIfAbsent(disk, d -> new StorageDevice(disk, kindOf(block)));
+    }
+
+    public String name() { return name; }
+    public Kind kind() { return kind; }
+
+    /** The /sys/class/block entry of the whole disk behind a store like /dev/sda1, or null if there is none. */
+    private static Path blockDevice(String storeName) {
+        if (!storeName.startsWith("/dev/")) return null;
+        try {
+            String dev = Paths.get(storeName).toRealPath().getFileName().toString(); // /dev/mapper/x -> dm-0
+            Path block = Paths.get("/sys/class/block", dev);
+            if (!Files.exists(block)) return null;
+            // A partition's sysfs directory sits inside its disk's.
+            return Files.exists(block.resolve("partition")) ? block.toRealPath().getParent() : block.toRealPath();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Kind kindOf(Path block) {
+        try {
+            String rotational = Files.readString(block.resolve("queue/rotational"), StandardCharsets.US_ASCII).trim();
+            if (rotational.equals("1")) return Kind.HDD;
+            return block.getFileName().toString().toLowerCase(Locale.ROOT).startsWith("nvme") ? Kind.NVME : Kind.SSD;
+        } catch (IOException | RuntimeException e) {
+            return Kind.UNKNOWN;
+        }
+    }
+
+    @Override
+    public String toString() { return name + " (" + kind + ")"; }
+}
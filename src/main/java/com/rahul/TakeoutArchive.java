@@ -0,0 +1,177 @@
+package com.rahul;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads Google Takeout archive parts (.zip, .tgz, .tar.gz) entry by entry without
+ * extracting them. A part named like "takeout-20240101T000000Z-001.zip" is treated as
+ * one piece of a series, and all its numbered siblings are read in order.
+ */
+public class TakeoutArchive {
+    private static final Pattern PART = Pattern.compile("(.*-)(\\d{3})(\\.zip|\\.tgz|\\.tar\\.gz)", Pattern.CASE_INSENSITIVE);
+
+    /** Receives each regular-file entry; {@code in} is only valid during the call. Returns false to stop reading. */
+    public interface EntryVisitor {
+        boolean visit(String name, long size, long mtimeMillis, InputStream in) throws IOException, InterruptedException;
+    }
+
+    private TakeoutArchive() {}
+
+    public static boolean isArchive(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return Files.isRegularFile(path) && (name.endsWith(".zip") || name.endsWith(".tgz") || name.endsWith(".tar.gz"));
+    }
+
+    /** Returns every part of the series {@code part} belongs to, in order, or just {@code part}. */
+    public static List<Path> seriesOf(Path part) throws IOException {
+        Matcher m = PART.matcher(part.getFileName().toString());
+        List<Path> parts = new ArrayList<>();
+        if (!m.matches()) {
+            parts.add(part);
+            return parts;
+        }
+        Pattern sibling = Pattern.compile(Pattern.quote(m.group(1)) + "\\d{3}" + Pattern.quote(m.group(3)), Pattern.CASE_INSENSITIVE);
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(part.toAbsolutePath().getParent())) {
+            for (Path p : dir) if (sibling.matcher(p.getFileName().toString()).matches()) parts.add(p);
+        }
+        parts.sort((a, b) -> a.getFileName().toString().compareToIgnoreCase(b.getFileName().toString()));
+        return parts;
+    }
+
+    /** Streams every regular-file entry of one part to {@code visitor}, in archive order, until it returns false. */
+    public static void forEachEntry(Path part, EntryVisitor visitor) throws IOException, InterruptedException {
+        String name = part.getFileName().toString().toLowerCase();
+        if (name.endsWith(".zip")) {
+            try (ZipFile zip = new ZipFile(part.toFile(), StandardCharsets.UTF_8)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry e = entries.nextElement();
+                    if (e.isDirectory()) continue;
+                    try (InputStream in = zip.getInputStream(e)) {
+                        if (!visitor.visit(e.getName(), e.getSize(), e.getTime(), in)) return;
+                    }
+                }
+            }
+        } else {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(part), 1 << 16)) {
+                readTar(in, visitor);
+            }
+        }
+    }
+
+    /** A minimal ustar reader supporting GNU long names and PAX path/size records. */
+    private static void readTar(InputStream in, EntryVisitor visitor) throws IOException, InterruptedException {
+        byte[] header = new byte[512];
+        String longName = null;
+        long paxSize = -1;
+        while (readFully(in, header)) {
+            if (isZeroBlock(header)) return;
+            String name = string(header, 0, 100);
+            String prefix = string(header, 345, 155);
+            if (!prefix.isEmpty() && string(header, 257, 5).equals("ustar")) name = prefix + "/" + name;
+            long size = number(header, 124, 12);
+            long mtime = number(header, 136, 12) * 1000;
+            char type = (char) header[156];
+
+            if (type == 'L' || type == 'x') {
+                byte[] data = in.readNBytes((int) size);
+                in.skipNBytes(padding(size));
+                if (type == 'L') {
+                    longName = string(data, 0, data.length);
+                } else {
+                    for (String record : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                        int sp = record.indexOf(' '), eq = record.indexOf('=');
+                        if (sp < 0 || eq < sp) continue;
+                        String key = record.substring(sp + 1, eq), value = record.substring(eq + 1);
+                        if (key.equals("path")) longName = value;
+                        else if (key.equals("size")) paxSize = Long.parseLong(value);
+                    }
+                }
+                continue;
+            }
+            if (longName != null) name = longName;
+            if (paxSize >= 0) size = paxSize;
+            longName = null;
+            paxSize = -1;
+
+            EntryStream entry = new EntryStream(in, size);
+            if ((type == '0' || type == '\0') && !visitor.visit(name, size, mtime, entry)) return;
+            in.skipNBytes(entry.remaining + padding(size));
+        }
+    }
+
+    private static boolean readFully(InputStream in, byte[] b) throws IOException {
+        int n = in.readNBytes(b, 0, b.length);
+        if (n == 0) return false;
+        if (n < b.length) throw new IOException("Truncated tar header");
+        return true;
+    }
+
+    private static boolean isZeroBlock(byte[] b) {
+        for (byte x : b) if (x != 0) return false;
+        return true;
+    }
+
+    private static long padding(long size) { return (512 - size % 512) % 512; }
+
+    private static String string(byte[] b, int off, int len) {
+        int end = off;
+        while (end < off + len && b[end] != 0) end++;
+        return new String(b, off, end - off, StandardCharsets.UTF_8);
+    }
+
+    /** Parses an octal field, or a GNU base-256 field when the high bit is set. */
+    private static long number(byte[] b, int off, int len) {
+        if ((b[off] & 0x80) != 0) {
+            long v = b[off] & 0x7F;
+            for (int i = 1; i < len; i++) v = (v << 8) | (b[off + i] & 0xFF);
+            return v;
+        }
+        String s = string(b, off, len).trim();
+        return s.isEmpty() ? 0 : Long.parseLong(s, 8);
+    }
+
+    /** Limits reads to the current tar entry and ignores close(). */
+    private static final class EntryStream extends FilterInputStream {
+        long remaining;
+
+        EntryStream(InputStream in, long size) { super(in); this.remaining = size; }
+
+        @Override public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            int b = super.read();
+            if (b >= 0) remaining--;
+            return b;
+        }
+
+        @Override public int read(byte[] buf, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            int n = super.read(buf, off, (int) Math.min(len, remaining));
+            if (n > 0) remaining -= n;
+            return n;
+        }
+
+        @Override public long skip(long n) throws IOException {
+            long s = super.skip(Math.min(n, remaining));
+            remaining -= s;
+            return s;
+        }
+
+        @Override public int available() throws IOException { return (int) Math.min(super.available(), remaining); }
+        @Override public void close() { /* The archive stream stays open */ }
+    }
+}
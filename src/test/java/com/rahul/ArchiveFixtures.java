@@ -0,0 +1,98 @@
+package com.rahul;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds gzipped tar archives block by block, so tests can write the header shapes
+ * real Takeout exports use: ustar prefixes, GNU long names and PAX records.
+ */
+final class ArchiveFixtures {
+    private final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+
+    /** A regular file; a name over 100 bytes is split into the ustar prefix and name fields. */
+    ArchiveFixtures file(String name, byte[] data) {
+        int split = name.length() > 100 ? name.lastIndexOf('/', 155) : -1;
+        if (split < 0) header(name, "", data.length, '0');
+        else header(name.substring(split + 1), name.substring(0, split), data.length, '0');
+        return data(data);
+    }
+
+    /** A regular file whose name comes from a preceding GNU 'L' entry. */
+    ArchiveFixtures gnuLongName(String name, byte[] data) {
+        byte[] longName = (name + "\0").getBytes(StandardCharsets.UTF_8);
+        header("././@LongLink", "", longName.length, 'L');
+        data(longName);
+        header(name.substring(0, Math.min(99, name.length())), "", data.length, '0');
+        return data(data);
+    }
+
+    /**
+     * A regular file whose path and size come from a preceding PAX 'x' entry. The size
+     * field of its own header is left at zero, as writers do for sizes over 8 GiB.
+     */
+    ArchiveFixtures paxFile(String name, byte[] data) {
+        byte[] records = (paxRecord("path", name) + paxRecord("size", Long.toString(data.length))).getBytes(StandardCharsets.UTF_8);
+        header("PaxHeaders/x", "", records.length, 'x');
+        data(records);
+        header("ignored.bin", "", 0, '0');
+        return data(data);
+    }
+
+    /** A directory entry, which readers skip. */
+    ArchiveFixtures directory(String name) {
+        header(name, "", 0, '5');
+        return this;
+    }
+
+    Path writeTgz(Path file) throws IOException {
+        tar.write(new byte[1024]);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            tar.writeTo(out);
+        }
+        return file;
+    }
+
+    /** "LEN key=value\n", where LEN counts the whole record including its own digits. */
+    private static String paxRecord(String key, String value) {
+        String body = " " + key + "=" + value + "\n";
+        int len = body.length();
+        while (Integer.toString(len).length() + body.length() != len) len = Integer.toString(len).length() + body.length();
+        return len + body;
+    }
+
+    private void header(String name, String prefix, long size, char type) {
+        byte[] h = new byte[512];
+        put(h, 0, 100, name);
+        put(h, 100, 8, "0000644");
+        put(h, 108, 8, "0000000");
+        put(h, 116, 8, "0000000");
+        put(h, 124, 12, String.format("%011o", size));
+        put(h, 136, 12, String.format("%011o", 1_700_000_000L));
+        h[156] = (byte) type;
+        put(h, 257, 6, "ustar");
+        put(h, 263, 2, "00");
+        put(h, 345, 155, prefix);
+        for (int i = 148; i < 156; i++) h[i] = ' ';
+        long sum = 0;
+        for (byte b : h) sum += b & 0xFF;
+        put(h, 148, 8, String.format("%06o", sum));
+        tar.writeBytes(h);
+    }
+
+    private ArchiveFixtures data(byte[] data) {
+        tar.writeBytes(data);
+        tar.writeBytes(new byte[(512 - data.length % 512) % 512]);
+        return this;
+    }
+
+    private static void put(byte[] h, int off, int len, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(b, 0, h, off, Math.min(len, b.length));
+    }
+}
@@ -0,0 +1,85 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveImporterTest {
+    private static final byte[] SIDECAR = "{\"photoTakenTime\": {\"timestamp\": \"1700000000\"}}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    private final List<String> log = new CopyOnWriteArrayList<>();
+    private final Map<Path, Instant> tagged = new ConcurrentHashMap<>();
+
+    private ArchiveImporter importer(Path out, StagePool tagStage, ProcessingJournal journal) {
+        return new ArchiveImporter(out, tagStage, 4, (meta, file) -> {
+            tagged.put(file, meta.taken());
+            return true;
+        }, journal, new RunStats(), false, log::add, name -> {}, () -> false);
+    }
+
+    private void importAll(Path out, Path archive) throws Exception {
+        StagePool tagStage = StagePool.fixed("tag", 2, 8, false);
+        try (ProcessingJournal journal = ProcessingJournal.open(out)) {
+            importer(out, tagStage, journal).importParts(List.of(archive));
+            tagStage.finish();
+        } finally {
+            tagStage.close();
+        }
+    }
+
+    @Test
+    void pairsSidecarsSeenBeforeAndAfterTheirMedia() throws Exception {
+        Path out = Files.createDirectories(dir.resolve("out"));
+        String album = "Takeout/Google Photos/Album " + "x".repeat(100) + "/";
+        Path tgz = new ArchiveFixtures()
+                .file("Takeout/Google Photos/Trip/a.jpg.json", SIDECAR)
+                .file("Takeout/Google Photos/Trip/a.jpg", new byte[]{1})
+                .gnuLongName(album + "b.jpg", new byte[]{2})
+                .paxFile(album + "b.jpg.supplemental-metadata.json", SIDECAR)
+                .writeTgz(dir.resolve("takeout.tgz"));
+
+        importAll(out, tgz);
+
+        Instant taken = Instant.ofEpochSecond(1_700_000_000L);
+        assertEquals(Map.of(out.resolve("Takeout/Google Photos/Trip/a.jpg").toAbsolutePath().normalize(), taken,
+                out.resolve(album + "b.jpg").toAbsolutePath().normalize(), taken), tagged);
+        assertEquals(1, Files.size(out.resolve("Takeout/Google Photos/Trip/a.jpg")));
+    }
+
+    @Test
+    void entriesOutsideTheOutputFolderAreSkipped() throws Exception {
+        // Nested, so every escape still lands inside the temporary folder.
+        Path out = Files.createDirectories(dir.resolve("a/b/out"));
+        Path tgz = new ArchiveFixtures()
+                .file("../escaped.jpg", new byte[]{1})
+                .file("Takeout/../../escaped-too.jpg", new byte[]{2})
+                .gnuLongName("Takeout/" + "../".repeat(3) + "escaped-gnu.jpg", new byte[]{3})
+                .paxFile("../../escaped-pax.jpg", new byte[]{4})
+                .file("Takeout/../Takeout/kept.jpg", new byte[]{5})
+                .writeTgz(dir.resolve("takeout.tgz"));
+
+        importAll(out, tgz);
+
+        assertFalse(Files.exists(dir.resolve("a/b/escaped.jpg")));
+        assertFalse(Files.exists(dir.resolve("a/b/escaped-too.jpg")));
+        assertFalse(Files.exists(dir.resolve("a/escaped-gnu.jpg")));
+        assertFalse(Files.exists(dir.resolve("a/escaped-pax.jpg")));
+        assertTrue(Files.exists(out.resolve("Takeout/kept.jpg")));
+        assertEquals(4, log.stream().filter(l -> l.startsWith("WARN: Skipping archive entry outside the output folder")).count());
+    }
+}
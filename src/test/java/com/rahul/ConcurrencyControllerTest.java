@@ -0,0 +1,74 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyControllerTest {
+    private static final int TASKS = 400;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Work fed through a {@link DeviceScheduler} waits in the disk's lane, not in the
+     * stage's queue, once the disk has as many operations in flight as the stage has
+     * threads. The stage must still be probed with more threads.
+     */
+    @Test
+    void stageFedThroughTheSchedulerGrows() throws Exception {
+        StagePool stage = new StagePool("copy", 2, 8, 64, false);
+        DeviceScheduler scheduler = new DeviceScheduler(2);
+        StorageDevice disk = StorageDevice.of(dir);
+        AtomicInteger done = new AtomicInteger(), mostThreads = new AtomicInteger();
+        try (ConcurrencyController controller = new ConcurrencyController(List.of(stage), line -> {}, 50)) {
+            for (int i = 0; i < TASKS; i++) {
+                assertTrue(scheduler.submit(stage, disk, disk, () -> {
+                    mostThreads.accumulateAndGet(stage.threads(), Math::max);
+                    sleep(5);
+                    done.incrementAndGet();
+                }));
+            }
+            stage.finish();
+        } finally {
+            stage.close();
+        }
+        assertEquals(TASKS, done.get());
+        assertTrue(mostThreads.get() > 2, "never probed with more than its initial 2 threads");
+        assertEquals(0, stage.reserved());
+    }
+
+    @Test
+    void reservedCountsWorkWaitingForItsDisk() throws Exception {
+        StagePool stage = StagePool.fixed("tag", 1, 16, false);
+        DeviceScheduler scheduler = new DeviceScheduler(1);
+        StorageDevice disk = StorageDevice.of(dir);
+        Object gate = new Object();
+        try {
+            synchronized (gate) {
+                for (int i = 0; i < 3; i++) scheduler.submit(stage, disk, disk, () -> { synchronized (gate) { } });
+                // One task holds the disk's only slot; the other two wait in its lane.
+                assertEquals(2, stage.reserved());
+                assertEquals(0, stage.queued());
+            }
+            stage.finish();
+            assertEquals(0, stage.reserved());
+        } finally {
+            stage.close();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
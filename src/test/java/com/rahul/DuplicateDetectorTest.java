@@ -0,0 +1,89 @@
+package com.rahul;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateDetectorTest {
+    @TempDir
+    Path dir;
+
+    private DuplicateDetector.Member member(String name, String content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return new DuplicateDetector.Member(file, dir.resolve("out").resolve(name), name, Files.size(file), 1000);
+    }
+
+    @Test
+    void sameBytesAndMetadataAreDuplicates() throws Exception {
+        DuplicateDetector detector = new DuplicateDetector();
+        DuplicateDetector.Member original = member("2019/IMG.jpg", "photo");
+        DuplicateDetector.Member copy = member("Album/IMG.jpg", "photo");
+        DuplicateDetector.Member another = member("Other/IMG.jpg", "photo");
+        assertFalse(detector.claim(original, "1700000000"));
+        assertTrue(detector.claim(copy, "1700000000"));
+        assertTrue(detector.claim(another, "1700000000"));
+
+        List<DuplicateDetector.Group> groups = detector.groups();
+        assertEquals(1, groups.size());
+        assertEquals(original, groups.get(0).original());
+        assertEquals(List.of(copy, another), groups.get(0).duplicates());
+    }
+
+    @Test
+    void sameBytesWithDifferentMetadataAreKept() throws Exception {
+        DuplicateDetector detector = new DuplicateDetector();
+        assertFalse(detector.claim(member("a/IMG.jpg", "photo"), "1700000000"));
+        assertFalse(detector.claim(member("b/IMG.jpg", "photo"), "1600000000"));
+        assertTrue(detector.claim(member("c/IMG.jpg", "photo"), "1600000000"));
+        List<DuplicateDetector.Group> groups = detector.groups();
+        assertEquals(1, groups.size());
+        assertEquals(dir.resolve("b/IMG.jpg"), groups.get(0).original().source());
+    }
+
+    @Test
+    void sameSizeWithDifferentBytesAreNotDuplicates() throws Exception {
+        DuplicateDetector detector = new DuplicateDetector();
+        assertFalse(detector.claim(member("a.jpg", "aaaaa"), "-"));
+        assertFalse(detector.claim(member("b.jpg", "bbbbb"), "-"));
+        assertTrue(detector.groups().isEmpty());
+    }
+
+    @Test
+    void fileOfAUniqueSizeIsNeverHashed() throws Exception {
+        DuplicateDetector detector = new DuplicateDetector();
+        DuplicateDetector.Member lone = member("lone.jpg", "one");
+        assertFalse(detector.claim(lone, "-"));
+        // Hashing the first file of a size reads it, so a deleted one would fail here.
+        Files.delete(lone.source());
+        assertFalse(detector.claim(member("other.jpg", "other size"), "-"));
+        assertTrue(detector.groups().isEmpty());
+    }
+
+    @Test
+    void reportListsDuplicatesRelativeToTheInput() throws Exception {
+        DuplicateDetector detector = new DuplicateDetector();
+        detector.claim(member("a/IMG.jpg", "photo"), "-");
+        detector.claim(member("b/IMG.jpg", "photo"), "-");
+        Path report = dir.resolve(DuplicateDetector.REPORT_NAME);
+        detector.writeReport(report, List.of(dir));
+
+        JSONObject json = new JSONObject(Files.readString(report));
+        assertEquals(1, json.getLong("duplicateFiles"));
+        assertEquals(5, json.getLong("duplicateBytes"));
+        JSONObject group = json.getJSONArray("groups").getJSONObject(0);
+        assertEquals(Path.of("a", "IMG.jpg").toString(), group.getString("original"));
+        assertEquals(Path.of("b", "IMG.jpg").toString(), group.getJSONArray("duplicates").getString(0));
+        assertEquals(64, group.getString("sha256").length());
+    }
+}
@@ -0,0 +1,145 @@
+package com.rahul;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small but well-formed JPEG, HEIC and MP4/MOV files in the shapes the built-in writer
+ * patches: every date and GPS entry it needs is present with a placeholder value.
+ */
+final class MediaFixtures {
+    static final String PLACEHOLDER_DATE = "2000:01:01 00:00:00";
+
+    private MediaFixtures() {}
+
+    /**
+     * A TIFF structure with ModifyDate in IFD0, DateTimeOriginal and CreateDate in the
+     * Exif IFD and, if {@code gps}, a GPS IFD with both coordinates and their refs.
+     * {@code dateCount} is the declared length of each date entry (20 is the EXIF size).
+     */
+    static byte[] tiff(ByteOrder order, boolean gps, int dateCount) {
+        int ifd0Entries = gps ? 3 : 2;
+        int ifd0 = 8, exifIfd = ifd0 + ifdSize(ifd0Entries), gpsIfd = exifIfd + ifdSize(2);
+        int data = gps ? gpsIfd + ifdSize(4) : gpsIfd;
+        int modify = data, original = data + 20, create = data + 40, lat = data + 60, lon = data + 84;
+        ByteBuffer t = ByteBuffer.allocate(gps ? lon + 24 : lat).order(order);
+        t.put(order == ByteOrder.LITTLE_ENDIAN ? "II".getBytes(StandardCharsets.US_ASCII) : "MM".getBytes(StandardCharsets.US_ASCII));
+        t.putShort((short) 42).putInt(ifd0);
+        t.putShort((short) ifd0Entries);
+        entry(t, 0x0132, 2, dateCount, modify);
+        entry(t, 0x8769, 4, 1, exifIfd);
+        if (gps) entry(t, 0x8825, 4, 1, gpsIfd);
+        t.putInt(0);
+        t.putShort((short) 2);
+        entry(t, 0x9003, 2, dateCount, original);
+        entry(t, 0x9004, 2, dateCount, create);
+        t.putInt(0);
+        if (gps) {
+            t.putShort((short) 4);
+            asciiEntry(t, 1, "N");
+            entry(t, 2, 5, 3, lat);
+            asciiEntry(t, 3, "E");
+            entry(t, 4, 5, 3, lon);
+            t.putInt(0);
+        }
+        for (int i = 0; i < 3; i++) t.put((PLACEHOLDER_DATE + "\0").getBytes(StandardCharsets.US_ASCII));
+        if (gps) {
+            for (int i = 0; i < 6; i++) t.putInt(i % 2 == 0 ? 0 : 1);
+            for (int i = 0; i < 6; i++) t.putInt(i % 2 == 0 ? 0 : 1);
+        }
+        return t.array();
+    }
+
+    private static int ifdSize(int entries) { return 2 + 12 * entries + 4; }
+
+    private static void entry(ByteBuffer b, int tag, int type, int count, int value) {
+        b.putShort((short) tag).putShort((short) type).putInt(count).putInt(value);
+    }
+
+    /** An ASCII entry short enough to be stored in the entry itself. */
+    private static void asciiEntry(ByteBuffer b, int tag, String value) {
+        b.putShort((short) tag).putShort((short) 2).putInt(value.length() + 1);
+        byte[] inline = new byte[4];
+        System.arraycopy(value.getBytes(StandardCharsets.US_ASCII), 0, inline, 0, value.length());
+        b.put(inline);
+    }
+
+    /** A baseline JPEG with {@code tiff} as its EXIF block, or none if null; {@code scanBytes} pads the image data. */
+    static byte[] jpeg(byte[] tiff, int scanBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(scanBytes + 300);
+        out.write(0xFF); out.write(0xD8);
+        if (tiff != null) {
+            out.write(0xFF); out.write(0xE1);
+            int length = 2 + 6 + tiff.length;
+            out.write(length >> 8); out.write(length & 0xFF);
+            out.writeBytes("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(tiff);
+        }
+        out.writeBytes(new byte[]{(byte) 0xFF, (byte) 0xDA, 0, 2});
+        for (int i = 0; i < scanBytes; i++) out.write(i % 251 == 0xFF ? 0 : i % 251);
+        out.write(0xFF); out.write(0xD9);
+        return out.toByteArray();
+    }
+
+    /**
+     * A HEIC with an ftyp, a meta box whose iinf lists one Exif item and whose iloc
+     * places it in the mdat, holding {@code tiff} after the 4-byte header offset.
+     */
+    static byte[] heic(byte[] tiff) {
+        byte[] ftyp = box("ftyp", "heic\0\0\0\0mif1heic".getBytes(StandardCharsets.US_ASCII));
+        byte[] hdlr = box("hdlr", concat(new byte[8], concat("pict".getBytes(StandardCharsets.US_ASCII), new byte[13])));
+        byte[] infe = box("infe", concat(new byte[]{2, 0, 0, 0, 0, 1, 0, 0}, "Exif\0".getBytes(StandardCharsets.US_ASCII)));
+        byte[] iinf = box("iinf", concat(new byte[]{0, 0, 0, 0, 0, 1}, infe));
+        int ilocSize = 8 + 4 + 2 + 2 + 2 + 2 + 2 + 4 + 4;
+        int metaSize = 8 + 4 + hdlr.length + iinf.length + ilocSize;
+        int exifOffset = ftyp.length + metaSize + 8;
+        byte[] exif = concat(new byte[4], tiff);
+        byte[] iloc = box("iloc", ByteBuffer.allocate(ilocSize - 8)
+                .putInt(0).put((byte) 0x44).put((byte) 0)
+                .putShort((short) 1).putShort((short) 1).putShort((short) 0)
+                .putShort((short) 1).putInt(exifOffset).putInt(exif.length).array());
+        byte[] meta = box("meta", concat(new byte[4], concat(hdlr, concat(iinf, iloc))));
+        return concat(ftyp, concat(meta, box("mdat", exif)));
+    }
+
+    /**
+     * An MP4 ("isom") or MOV ("qt  ") with movie, track and media headers of the given
+     * version, all with creation and modification time 1; {@code mdatBytes} pads the
+     * media data, which comes before the moov box as in most camera files.
+     */
+    static byte[] quickTime(String brand, int version, int mdatBytes) {
+        ByteBuffer mvhd = ByteBuffer.allocate(version == 1 ? 112 : 100).put((byte) version).put(new byte[3]);
+        ByteBuffer tkhd = ByteBuffer.allocate(version == 1 ? 96 : 84).put((byte) version).put(new byte[]{0, 0, 7});
+        ByteBuffer mdhd = ByteBuffer.allocate(version == 1 ? 36 : 24).put((byte) version).put(new byte[3]);
+        for (ByteBuffer header : new ByteBuffer[]{mvhd, tkhd, mdhd}) {
+            if (version == 1) header.putLong(1).putLong(1);
+            else header.putInt(1).putInt(1);
+        }
+        mvhd.putInt(1000); // Timescale
+        mdhd.putInt(1000);
+        byte[] moov = box("moov", concat(box("mvhd", mvhd.array()),
+                box("trak", concat(box("tkhd", tkhd.array()), box("mdia", box("mdhd", mdhd.array()))))));
+        byte[] ftyp = box("ftyp", (brand + "\0\0\0\0" + brand).getBytes(StandardCharsets.US_ASCII));
+        return concat(ftyp, concat(box("mdat", new byte[mdatBytes]), moov));
+    }
+
+    /** A 1x1 PNG, a format the built-in writer does not handle. */
+    static byte[] png() {
+        return new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+                0, 0, 0, 13, 'I', 'H', 'D', 'R', 0, 0, 0, 1, 0, 0, 0, 1, 8, 0, 0, 0, 0, 0x3A, 0x7E, (byte) 0x9B, 0x55,
+                0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82};
+    }
+
+    static byte[] box(String type, byte[] payload) {
+        return concat(ByteBuffer.allocate(8).putInt(8 + payload.length).put(type.getBytes(StandardCharsets.US_ASCII)).array(), payload);
+    }
+
+    static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = new byte[a.length + b.length];
+        System.arraycopy(a, 0, r, 0, a.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+}
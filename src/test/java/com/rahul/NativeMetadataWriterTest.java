@@ -0,0 +1,250 @@
+package com.rahul;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Writes the sidecar's date and GPS into generated JPEG, HEIC and MP4/MOV files and
+ * reads them back, with the built-in reader and, where installed, with ExifTool (the
+ * executable is taken from the "exiftool" system property, or the PATH). Files the
+ * writer cannot patch must be left alone, so the engine hands them to ExifTool.
+ */
+class NativeMetadataWriterTest {
+    private static final Instant TAKEN = Instant.ofEpochSecond(1_500_000_000L);
+    private static final String DATE = "2017:07:14 02:40:00";
+    private static final SidecarMetadata WITH_GPS = new SidecarMetadata(TAKEN, true, 48.8583701, -2.2944813);
+    private static final SidecarMetadata WITHOUT_GPS = new SidecarMetadata(TAKEN, false, 0.0, 0.0);
+    private static final long QUICKTIME_SECONDS = TAKEN.getEpochSecond() + 2082844800L;
+
+    private final NativeMetadataWriter writer = new NativeMetadataWriter();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void jpegLittleEndian() throws IOException {
+        assertTaggedCopy(MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, true, 20), 4096), "a.jpg");
+    }
+
+    @Test
+    void jpegBigEndian() throws IOException {
+        assertTaggedCopy(MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.BIG_ENDIAN, true, 20), 4096), "a.jpg");
+    }
+
+    @Test
+    void heic() throws IOException {
+        assertTaggedCopy(MediaFixtures.heic(MediaFixtures.tiff(ByteOrder.BIG_ENDIAN, true, 20)), "a.heic");
+    }
+
+    @Test
+    void jpegInPlace() throws IOException {
+        Path file = write("a.jpg", MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, true, 20), 4096));
+        assertTrue(writer.write(file, file, WITH_GPS));
+        assertTags(writer.read(file, true), true);
+    }
+
+    @Test
+    void mp4() throws IOException {
+        Path target = assertQuickTimeCopy(MediaFixtures.quickTime("isom", 0, 4096), "a.mp4");
+        assertEquals(6, occurrences(Files.readAllBytes(target), ByteBuffer.allocate(4).putInt((int) QUICKTIME_SECONDS).array()));
+    }
+
+    @Test
+    void movWithLongTimes() throws IOException {
+        Path target = assertQuickTimeCopy(MediaFixtures.quickTime("qt  ", 1, 4096), "a.mov");
+        assertEquals(6, occurrences(Files.readAllBytes(target), ByteBuffer.allocate(8).putLong(QUICKTIME_SECONDS).array()));
+    }
+
+    /** The movie header's creation time straddles the copier's 1 MiB chunks. */
+    @Test
+    void patchAcrossCopyChunks() throws IOException {
+        Path target = assertQuickTimeCopy(MediaFixtures.quickTime("isom", 0, (1 << 20) - 50), "a.mp4");
+        assertEquals(6, occurrences(Files.readAllBytes(target), ByteBuffer.allocate(4).putInt((int) QUICKTIME_SECONDS).array()));
+    }
+
+    /** An output hardlinked to its source by an earlier run must not take the original with it. */
+    @Test
+    void hardlinkedTargetKeepsTheSource() throws IOException {
+        byte[] original = MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, true, 20), 4096);
+        Path source = write("a.jpg", original);
+        Path target = Files.createLink(dir.resolve("out.jpg"), source);
+        assertTrue(writer.write(source, target, WITH_GPS));
+        assertArrayEquals(original, Files.readAllBytes(source));
+        assertTags(writer.read(target, true), true);
+    }
+
+    @Test
+    void jpegWithoutExifIsLeftToExifTool() throws IOException {
+        assertNotHandled(MediaFixtures.jpeg(null, 4096), "a.jpg", WITHOUT_GPS);
+    }
+
+    @Test
+    void jpegWithoutGpsEntriesIsLeftToExifToolOnlyWhenGpsIsNeeded() throws IOException {
+        byte[] jpeg = MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, false, 20), 4096);
+        assertNotHandled(jpeg, "a.jpg", WITH_GPS);
+        Path target = dir.resolve("out.jpg");
+        assertTrue(writer.write(write("b.jpg", jpeg), target, WITHOUT_GPS));
+        assertTags(writer.read(target, false), false);
+    }
+
+    @Test
+    void shortDateEntriesAreLeftToExifTool() throws IOException {
+        assertNotHandled(MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.BIG_ENDIAN, true, 10), 4096), "a.jpg", WITH_GPS);
+    }
+
+    @Test
+    void truncatedExifIsLeftToExifTool() throws IOException {
+        byte[] jpeg = MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, true, 20), 4096);
+        assertNotHandled(Arrays.copyOf(jpeg, 60), "a.jpg", WITH_GPS);
+    }
+
+    @Test
+    void mp4WithGpsIsLeftToExifTool() throws IOException {
+        assertNotHandled(MediaFixtures.quickTime("isom", 0, 4096), "a.mp4", WITH_GPS);
+    }
+
+    @Test
+    void malformedBoxesAreLeftToExifTool() throws IOException {
+        byte[] mp4 = MediaFixtures.quickTime("isom", 0, 4096);
+        ByteBuffer.wrap(mp4).putInt(20 + 8 + 4096, Integer.MAX_VALUE); // moov claims to run far past the end
+        assertNotHandled(mp4, "a.mp4", WITHOUT_GPS);
+    }
+
+    @Test
+    void pngIsLeftToExifTool() throws IOException {
+        assertNotHandled(MediaFixtures.png(), "a.png", WITHOUT_GPS);
+        assertNull(writer.read(write("b.png", MediaFixtures.png()), false));
+    }
+
+    @Test
+    void jpegReadByExifTool() throws IOException, InterruptedException {
+        assertExifTool(MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.LITTLE_ENDIAN, true, 20), 4096), "a.jpg");
+        assertExifTool(MediaFixtures.jpeg(MediaFixtures.tiff(ByteOrder.BIG_ENDIAN, true, 20), 4096), "b.jpg");
+    }
+
+    @Test
+    void heicReadByExifTool() throws IOException, InterruptedException {
+        assertExifTool(MediaFixtures.heic(MediaFixtures.tiff(ByteOrder.BIG_ENDIAN, true, 20)), "a.heic");
+    }
+
+    @Test
+    void quickTimeReadByExifTool() throws IOException, InterruptedException {
+        for (Object[] movie : new Object[][]{{"isom", 0, "a.mp4"}, {"qt  ", 1, "a.mov"}}) {
+            Path target = dir.resolve("out-" + movie[2]);
+            assertTrue(writer.write(write((String) movie[2], MediaFixtures.quickTime((String) movie[0], (Integer) movie[1], 4096)), target, WITHOUT_GPS));
+            JSONObject tags = exiftool(target, "-CreateDate", "-ModifyDate", "-TrackCreateDate", "-TrackModifyDate",
+                    "-MediaCreateDate", "-MediaModifyDate");
+            for (String tag : tags.keySet()) {
+                if (!tag.equals("SourceFile")) assertEquals(DATE, tags.getString(tag), tag);
+            }
+            assertEquals(7, tags.length());
+        }
+    }
+
+    /** Copies {@code media} tagged with date and GPS, and checks the result and that only tag bytes changed. */
+    private void assertTaggedCopy(byte[] media, String name) throws IOException {
+        Path source = write(name, media);
+        Path target = dir.resolve("out-" + name);
+        assertTrue(writer.write(source, target, WITH_GPS));
+        assertArrayEquals(media, Files.readAllBytes(source));
+        byte[] tagged = Files.readAllBytes(target);
+        assertEquals(media.length, tagged.length);
+        assertEquals(0, occurrences(tagged, MediaFixtures.PLACEHOLDER_DATE.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(3, occurrences(tagged, DATE.getBytes(StandardCharsets.US_ASCII)));
+        assertTags(writer.read(target, true), true);
+    }
+
+    private Path assertQuickTimeCopy(byte[] movie, String name) throws IOException {
+        Path source = write(name, movie);
+        Path target = dir.resolve("out-" + name);
+        assertTrue(writer.write(source, target, WITHOUT_GPS));
+        assertArrayEquals(movie, Files.readAllBytes(source));
+        assertEquals(movie.length, Files.size(target));
+        MetadataVerifier.Tags tags = writer.read(target, false);
+        assertEquals(DATE, tags.createDate());
+        assertEquals(DATE, tags.modifyDate());
+        assertNull(writer.read(target, true)); // GPS is for ExifTool to read
+        return target;
+    }
+
+    /** The writer must decline, leaving the source as it was and creating no target. */
+    private void assertNotHandled(byte[] media, String name, SidecarMetadata meta) throws IOException {
+        Path source = write(name, media);
+        Path target = dir.resolve("out-" + name);
+        assertFalse(writer.write(source, target, meta));
+        assertFalse(Files.exists(target));
+        assertArrayEquals(media, Files.readAllBytes(source));
+        assertFalse(writer.write(source, source, meta));
+        assertArrayEquals(media, Files.readAllBytes(source));
+    }
+
+    private static void assertTags(MetadataVerifier.Tags tags, boolean gps) {
+        assertEquals(DATE, tags.dateTimeOriginal());
+        assertEquals(DATE, tags.createDate());
+        assertEquals(DATE, tags.modifyDate());
+        if (gps) {
+            assertEquals(WITH_GPS.latitude(), tags.latitude(), 1e-6);
+            assertEquals(WITH_GPS.longitude(), tags.longitude(), 1e-6);
+        }
+    }
+
+    private void assertExifTool(byte[] media, String name) throws IOException, InterruptedException {
+        Path target = dir.resolve("out-" + name);
+        assertTrue(writer.write(write(name, media), target, WITH_GPS));
+        JSONObject tags = exiftool(target, "-DateTimeOriginal", "-CreateDate", "-ModifyDate", "-GPSLatitude", "-GPSLongitude");
+        assertEquals(DATE, tags.getString("DateTimeOriginal"));
+        assertEquals(DATE, tags.getString("CreateDate"));
+        assertEquals(DATE, tags.getString("ModifyDate"));
+        assertEquals(WITH_GPS.latitude(), tags.getDouble("GPSLatitude"), 1e-6);
+        assertEquals(WITH_GPS.longitude(), tags.getDouble("GPSLongitude"), 1e-6);
+    }
+
+    /** Reads {@code tags} of {@code file} with ExifTool; skips the test if ExifTool is not installed. */
+    private static JSONObject exiftool(Path file, String... tags) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>(List.of(System.getProperty("exiftool", "exiftool"), "-json", "-n"));
+        cmd.addAll(List.of(tags));
+        cmd.add(file.toString());
+        Process process;
+        try {
+            process = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            assumeTrue(false, "ExifTool is not installed");
+            return null;
+        }
+        String out = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), out);
+        return new JSONArray(out).getJSONObject(0);
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(dir.resolve(name), content);
+    }
+
+    private static int occurrences(byte[] data, byte[] pattern) {
+        int count = 0;
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + pattern.length, pattern, 0, pattern.length)) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessingJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void entriesSurviveReopening() throws Exception {
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            journal.record("a/IMG_1.jpg", 10, 1000, "a/IMG_1.jpg.json", Instant.ofEpochSecond(1), ProcessingJournal.Outcome.TAGGED, 0xCAFEL);
+            journal.record("a/IMG_2.jpg", 20, 2000, null, null, ProcessingJournal.Outcome.COPIED);
+            journal.record("a/IMG_3.jpg", 30, 3000, null, null, ProcessingJournal.Outcome.DUPLICATE);
+            journal.record("a/IMG_4.jpg", 40, 4000, null, null, ProcessingJournal.Outcome.FAILED);
+        }
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            assertEquals(4, journal.size());
+            assertTrue(journal.isDone("a/IMG_1.jpg", 10, 1000));
+            assertEquals(0xCAFEL, journal.checksum("a/IMG_1.jpg", 10, 1000));
+            assertTrue(journal.isDone("a/IMG_2.jpg", 20, 2000));
+            assertEquals(FileCopier.NO_CHECKSUM, journal.checksum("a/IMG_2.jpg", 20, 2000));
+            assertTrue(journal.isSkippedDuplicate("a/IMG_3.jpg", 30, 3000));
+            assertFalse(journal.isSkippedDuplicate("a/IMG_2.jpg", 20, 2000));
+            assertFalse(journal.isDone("a/IMG_4.jpg", 40, 4000));
+        }
+    }
+
+    @Test
+    void changedSourceIsNotDone() throws Exception {
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            journal.record("IMG.jpg", 10, 1000, null, null, ProcessingJournal.Outcome.COPIED, 7);
+        }
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            assertFalse(journal.isDone("IMG.jpg", 11, 1000));
+            assertFalse(journal.isDone("IMG.jpg", 10, 1001));
+            assertEquals(FileCopier.NO_CHECKSUM, journal.checksum("IMG.jpg", 10, 1001));
+        }
+    }
+
+    @Test
+    void namesWithTabsAndNewlinesRoundTrip() throws Exception {
+        String name = "odd\tname\nwith\\slash\r.jpg";
+        assertEquals(name, ProcessingJournal.unescape(ProcessingJournal.escape(name)));
+        assertFalse(ProcessingJournal.escape(name).contains("\t"));
+        assertFalse(ProcessingJournal.escape(name).contains("\n"));
+        assertEquals("plain.jpg", ProcessingJournal.unescape("plain.jpg"));
+
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            journal.record(name, 10, 1000, name + ".json", null, ProcessingJournal.Outcome.COPIED);
+        }
+        assertEquals(1, Files.readAllLines(dir.resolve(ProcessingJournal.FILE_NAME)).size());
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            assertTrue(journal.isDone(name, 10, 1000));
+        }
+    }
+
+    @Test
+    void loadsSixColumnJournalsAndSkipsTornLines() throws Exception {
+        Files.writeString(dir.resolve(ProcessingJournal.FILE_NAME), String.join("\n",
+                "old.jpg\t10\t1000\told.jpg.json\t1\tTAGGED",
+                "new.jpg\t20\t2000\t-\t-\tCOPIED\t1f",
+                "torn.jpg\t30\t3000\t-",
+                "bad.jpg\tx\t3000\t-\t-\tCOPIED\t-",
+                "unknown.jpg\t40\t4000\t-\t-\tMOVED\t-",
+                ""), StandardCharsets.UTF_8);
+        try (ProcessingJournal journal = ProcessingJournal.open(dir)) {
+            assertEquals(2, journal.size());
+            assertTrue(journal.isDone("old.jpg", 10, 1000));
+            assertEquals(FileCopier.NO_CHECKSUM, journal.checksum("old.jpg", 10, 1000));
+            assertEquals(0x1fL, journal.checksum("new.jpg", 20, 2000));
+            assertFalse(journal.isDone("torn.jpg", 30, 3000));
+        }
+    }
+}
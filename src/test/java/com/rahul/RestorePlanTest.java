@@ -0,0 +1,97 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestorePlanTest {
+    @TempDir
+    Path dir;
+
+    private static List<RestorePlan.Entry> readAll(RestorePlan.Reader reader) throws IOException {
+        List<RestorePlan.Entry> entries = new ArrayList<>();
+        for (RestorePlan.Entry e; (e = reader.next()) != null; ) entries.add(e);
+        return entries;
+    }
+
+    @Test
+    void entriesRoundTrip() throws Exception {
+        List<Path> roots = List.of(dir.resolve("in one"), dir.resolve("in\ttwo"));
+        Instant taken = Instant.ofEpochSecond(1_500_000_000L);
+        List<RestorePlan.Entry> written = List.of(
+                new RestorePlan.Entry(0, "Album/IMG.jpg", "Album/IMG.jpg", "Album/IMG.jpg.json",
+                        SidecarIndex.Strategy.EXACT, new SidecarMetadata(taken, true, 48.8584, -2.5), 1234),
+                new RestorePlan.Entry(1, "odd\tname.jpg", "odd\tname.jpg", "odd\tname.json",
+                        SidecarIndex.Strategy.EDITED, new SidecarMetadata(taken, false, 0.0, 0.0), 5),
+                new RestorePlan.Entry(1, "no sidecar.mp4", "no sidecar.mp4", null, null, null, 0));
+        Path file = dir.resolve("plans/restore.plan");
+        try (RestorePlan.Writer writer = RestorePlan.create(file, roots)) {
+            for (RestorePlan.Entry e : written) writer.add(e);
+        }
+        try (RestorePlan.Reader reader = RestorePlan.open(file)) {
+            assertEquals(List.of(roots.get(0).toAbsolutePath(), roots.get(1).toAbsolutePath()), reader.roots());
+            assertEquals(written, readAll(reader));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void pathsAreStoredWithSlashes() {
+        assertEquals("Takeout/Google Photos/Album/IMG.jpg", RestorePlan.path(Path.of("Takeout", "Google Photos", "Album", "IMG.jpg")));
+        assertEquals("IMG.jpg", RestorePlan.path(Path.of("IMG.jpg")));
+    }
+
+    @Test
+    void rejectsOtherFilesAndBadLines() throws Exception {
+        Path notAPlan = Files.writeString(dir.resolve("other.txt"), "hello\n");
+        assertThrows(IOException.class, () -> RestorePlan.open(notAPlan));
+
+        Path file = dir.resolve("restore.plan");
+        try (RestorePlan.Writer writer = RestorePlan.create(file, List.of(dir))) {
+            writer.add(new RestorePlan.Entry(0, "a.jpg", "a.jpg", null, null, null, 1));
+        }
+        Files.writeString(file, "1\tb.jpg\tb.jpg\t-\t-\t-\t-\t-\t1\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (RestorePlan.Reader reader = RestorePlan.open(file)) {
+            assertEquals("a.jpg", reader.next().source());
+            IOException e = assertThrows(IOException.class, reader::next);
+            assertTrue(e.getMessage().contains("line 4"), e.getMessage());
+        }
+    }
+
+    @Test
+    void shardsCoverEveryEntryExactlyOnce() {
+        int shards = 3;
+        Set<String> seen = new HashSet<>();
+        int[] perShard = new int[shards];
+        for (int n = 0; n < 3000; n++) {
+            String destination = "Takeout/Google Photos/Album " + (n % 17) + "/IMG_" + n + ".jpg";
+            RestorePlan.Entry e = new RestorePlan.Entry(0, destination, destination, null, null, null, 1);
+            assertTrue(e.inShard(1, 1));
+            int owners = 0;
+            for (int s = 1; s <= shards; s++) {
+                if (e.inShard(s, shards)) {
+                    owners++;
+                    perShard[s - 1]++;
+                }
+            }
+            assertEquals(1, owners, destination);
+            assertTrue(seen.add(destination));
+        }
+        for (int count : perShard) assertTrue(count > 800, "uneven split: " + count);
+    }
+}
@@ -0,0 +1,103 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SidecarIndexTest {
+    @TempDir
+    Path dir;
+
+    private static void assertMatch(SidecarIndex index, String media, String json, SidecarIndex.Strategy strategy) {
+        assertEquals(new SidecarIndex.Match(json, strategy), index.match(media), media);
+        assertEquals(json, index.find(media), media);
+    }
+
+    @Test
+    void exact() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.jpg.json", "notes.txt"));
+        assertEquals(1, index.size());
+        assertMatch(index, "IMG_0001.jpg", "IMG_0001.jpg.json", SidecarIndex.Strategy.EXACT);
+    }
+
+    @Test
+    void supplemental() {
+        SidecarIndex index = SidecarIndex.of(List.of(
+                "IMG_0001.jpg.supplemental-metadata.json",
+                "IMG_0002.jpg.supplemental-met.json",
+                "IMG_0003.jpg.supplemental-metadata(1).json"));
+        assertMatch(index, "IMG_0001.jpg", "IMG_0001.jpg.supplemental-metadata.json", SidecarIndex.Strategy.SUPPLEMENTAL);
+        assertMatch(index, "IMG_0002.jpg", "IMG_0002.jpg.supplemental-met.json", SidecarIndex.Strategy.SUPPLEMENTAL);
+        assertMatch(index, "IMG_0003(1).jpg", "IMG_0003.jpg.supplemental-metadata(1).json", SidecarIndex.Strategy.SUPPLEMENTAL);
+    }
+
+    @Test
+    void numberedDuplicateGetsItsOwnSidecar() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.jpg.json", "IMG_0001.jpg(1).json"));
+        assertMatch(index, "IMG_0001.jpg", "IMG_0001.jpg.json", SidecarIndex.Strategy.EXACT);
+        assertMatch(index, "IMG_0001(1).jpg", "IMG_0001.jpg(1).json", SidecarIndex.Strategy.SUPPLEMENTAL);
+    }
+
+    @Test
+    void title() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.json"));
+        assertMatch(index, "IMG_0001.jpg", "IMG_0001.json", SidecarIndex.Strategy.TITLE);
+    }
+
+    @Test
+    void editedCopySharesTheOriginalsSidecar() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.jpg.json", "IMG_0002.jpg.supplemental-metadata.json"));
+        assertMatch(index, "IMG_0001-edited.jpg", "IMG_0001.jpg.json", SidecarIndex.Strategy.EDITED);
+        assertMatch(index, "IMG_0002-bearbeitet.jpg", "IMG_0002.jpg.supplemental-metadata.json", SidecarIndex.Strategy.EDITED);
+    }
+
+    @Test
+    void prefix() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.json", "IMG_0001_BURST.json"));
+        assertMatch(index, "IMG_0001_BURST_COVER.jpg", "IMG_0001_BURST.json", SidecarIndex.Strategy.PREFIX);
+    }
+
+    @Test
+    void truncatedToFortySixCharacters() {
+        String media = "PXL_000001_holiday_at_the_lake_with_the_whole_family.jpg";
+        String json = (media + ".json").substring(0, 46) + ".json";
+        SidecarIndex index = SidecarIndex.of(List.of(json));
+        assertEquals(new SidecarIndex.Match(json, SidecarIndex.Strategy.PREFIX), index.match(media));
+
+        // A 46-character sidecar base that is not a prefix of the media's own base.
+        String other = "PXL_000002_holiday_at_the_lake_with_the_whole_family_extra_long.jpg";
+        String otherJson = other.substring(0, 46) + "X.json";
+        assertMatch(SidecarIndex.of(List.of(otherJson)), other, otherJson, SidecarIndex.Strategy.TRUNCATED);
+    }
+
+    @Test
+    void unrelatedNamesDoNotMatch() {
+        SidecarIndex index = SidecarIndex.of(List.of("IMG_0001.jpg.json", "metadata.json"));
+        assertNull(index.match("DSC_9999.jpg"));
+        assertNull(index.find("IMG_0001-edited.png"));
+    }
+
+    @Test
+    void mediaNameOfSidecars() {
+        assertEquals("IMG.JPG", SidecarIndex.mediaNameOf("IMG.JPG.supplemental-metadata.json"));
+        assertEquals("IMG(1).JPG", SidecarIndex.mediaNameOf("IMG.JPG.supplemental-metadata(1).json"));
+        assertEquals("IMG(2).JPG", SidecarIndex.mediaNameOf("IMG.JPG(2).json"));
+        assertEquals("IMG.JPG", SidecarIndex.mediaNameOf("IMG.JPG.s.json"));
+        assertNull(SidecarIndex.mediaNameOf("IMG.JPG.json"));
+    }
+
+    @Test
+    void scanIndexesOnlyJsonFiles() throws Exception {
+        Files.writeString(dir.resolve("IMG_0001.jpg.json"), "{}");
+        Files.writeString(dir.resolve("IMG_0001.jpg"), "");
+        SidecarIndex index = SidecarIndex.scan(dir);
+        assertEquals(1, index.size());
+        assertMatch(index, "IMG_0001.jpg", "IMG_0001.jpg.json", SidecarIndex.Strategy.EXACT);
+    }
+}
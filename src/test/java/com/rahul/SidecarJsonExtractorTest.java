@@ -0,0 +1,87 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SidecarJsonExtractorTest {
+    private static SidecarMetadata extract(String json) {
+        return SidecarJsonExtractor.extract(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsATypicalSidecar() {
+        SidecarMetadata meta = extract("""
+                {
+                  "title": "IMG_0001.jpg",
+                  "description": "",
+                  "imageViews": "3",
+                  "creationTime": {"timestamp": "1600000000", "formatted": "13 Sept 2020, 12:26:40 UTC"},
+                  "photoTakenTime": {"timestamp": "1500000000", "formatted": "14 Jul 2017, 02:40:00 UTC"},
+                  "geoData": {"latitude": 48.8584, "longitude": 2.2945, "altitude": 35.0, "latitudeSpan": 0.0},
+                  "geoDataExif": {"latitude": 1.0, "longitude": 1.0},
+                  "people": [{"name": "A"}, {"name": "B"}],
+                  "url": "https://photos.google.com/photo/x"
+                }
+                """);
+        assertEquals(Instant.ofEpochSecond(1_500_000_000L), meta.taken());
+        assertTrue(meta.hasGps());
+        assertEquals(48.8584, meta.latitude());
+        assertEquals(2.2945, meta.longitude());
+    }
+
+    @Test
+    void fallsBackToCreationTime() {
+        SidecarMetadata meta = extract("{\"creationTime\": {\"timestamp\": \"1600000000\"}, \"geoData\": {\"latitude\": 0.0, \"longitude\": 0.0}}");
+        assertEquals(Instant.ofEpochSecond(1_600_000_000L), meta.taken());
+        assertFalse(meta.hasGps());
+
+        assertEquals(Instant.ofEpochSecond(1_600_000_000L),
+                extract("{\"photoTakenTime\": {}, \"creationTime\": {\"timestamp\": 1600000000}}").taken());
+        assertEquals(Instant.ofEpochSecond(1_600_000_000L),
+                extract("{\"photoTakenTime\": null, \"creationTime\": {\"timestamp\": \"1600000000\"}}").taken());
+    }
+
+    @Test
+    void noTimestampIsNull() {
+        assertNull(extract("{}"));
+        assertNull(extract("{\"title\": \"Album\", \"geoData\": {\"latitude\": 1.5, \"longitude\": 2.5}}"));
+    }
+
+    @Test
+    void escapedKeysAndStringsAreSkippedWhole() {
+        SidecarMetadata meta = extract("{"
+                + "\"de\\\"scription\": \"a } \\\"photoTakenTime\\\": {\\\"timestamp\\\": \\\"1\\\"} [\","
+                + "\"photoTakenTime\": {\"formatted\": \"x\\\\\", \"timestamp\": \"1500000000\"}"
+                + "}");
+        assertEquals(Instant.ofEpochSecond(1_500_000_000L), meta.taken());
+    }
+
+    @Test
+    void skipsAByteOrderMark() {
+        byte[] json = "\uFEFF{\"photoTakenTime\": {\"timestamp\": \"1500000000\"}}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Instant.ofEpochSecond(1_500_000_000L), SidecarJsonExtractor.extract(json).taken());
+    }
+
+    @Test
+    void malformedInputThrows() {
+        for (String json : new String[]{
+                "",
+                "[]",
+                "{\"photoTakenTime\": {\"timestamp\": \"15x\"}}",
+                "{\"photoTakenTime\": {\"timestamp\": \"\"}}",
+                "{\"title\": \"unterminated}",
+                "{\"people\": [{\"name\": \"A\"}",
+                "{\"title\" \"no colon\"}",
+                "{\"photoTakenTime\": {\"timestamp\": \"1500000000\"}"}) {
+            assertThrows(IllegalArgumentException.class, () -> extract(json), json);
+        }
+    }
+}
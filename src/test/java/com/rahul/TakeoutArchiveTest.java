@@ -0,0 +1,104 @@
+package com.rahul;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TakeoutArchiveTest {
+    private static final String ALBUM = "Takeout/Google Photos/Album with a rather long name that goes on and on and on, and then on some more/";
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String s) { return s.getBytes(StandardCharsets.UTF_8); }
+
+    private static Map<String, byte[]> read(Path part) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        TakeoutArchive.forEachEntry(part, (name, size, mtime, in) -> {
+            byte[] data = in.readAllBytes();
+            assertEquals(size, data.length, name);
+            entries.put(name, data);
+            return true;
+        });
+        return entries;
+    }
+
+    @Test
+    void readsUstarGnuAndPaxNames() throws Exception {
+        String longName = ALBUM + "PXL_20240101_120000000.NIGHT.with_an_extra_long_suffix_for_good_measure.jpg";
+        byte[] big = new byte[1500];
+        for (int i = 0; i < big.length; i++) big[i] = (byte) i;
+        Path tgz = new ArchiveFixtures()
+                .directory("Takeout/")
+                .file("Takeout/short.jpg", bytes("short"))
+                .file(ALBUM + "prefixed.jpg", bytes("prefixed"))
+                .gnuLongName(longName, bytes("gnu"))
+                .paxFile(ALBUM + "pax-" + "x".repeat(120) + ".mp4", big)
+                .file("Takeout/after.jpg.json", bytes("{}"))
+                .writeTgz(dir.resolve("takeout.tgz"));
+
+        Map<String, byte[]> entries = read(tgz);
+        assertEquals(List.of("Takeout/short.jpg", ALBUM + "prefixed.jpg", longName,
+                ALBUM + "pax-" + "x".repeat(120) + ".mp4", "Takeout/after.jpg.json"), new ArrayList<>(entries.keySet()));
+        assertArrayEquals(bytes("prefixed"), entries.get(ALBUM + "prefixed.jpg"));
+        assertArrayEquals(bytes("gnu"), entries.get(longName));
+        assertArrayEquals(big, entries.get(ALBUM + "pax-" + "x".repeat(120) + ".mp4"));
+        assertArrayEquals(bytes("{}"), entries.get("Takeout/after.jpg.json"));
+    }
+
+    @Test
+    void stopsWhenTheVisitorSaysSo() throws Exception {
+        Path tgz = new ArchiveFixtures()
+                .file("a.jpg", bytes("a"))
+                .file("b.jpg", bytes("b"))
+                .writeTgz(dir.resolve("takeout.tgz"));
+        List<String> seen = new ArrayList<>();
+        TakeoutArchive.forEachEntry(tgz, (name, size, mtime, in) -> {
+            seen.add(name);
+            return false;
+        });
+        assertEquals(List.of("a.jpg"), seen);
+    }
+
+    @Test
+    void readsZipParts() throws Exception {
+        Path zip = dir.resolve("takeout.zip");
+        try (OutputStream file = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(file)) {
+            out.putNextEntry(new ZipEntry("Takeout/"));
+            out.putNextEntry(new ZipEntry("Takeout/IMG.jpg"));
+            out.write(bytes("jpeg"));
+            out.closeEntry();
+        }
+        Map<String, byte[]> entries = read(zip);
+        assertEquals(List.of("Takeout/IMG.jpg"), new ArrayList<>(entries.keySet()));
+        assertArrayEquals(bytes("jpeg"), entries.get("Takeout/IMG.jpg"));
+    }
+
+    @Test
+    void findsEveryPartOfASeries() throws Exception {
+        for (String name : List.of("takeout-20240101T000000Z-002.tgz", "takeout-20240101T000000Z-001.tgz",
+                "takeout-20240101T000000Z-001.zip", "takeout-20240202T000000Z-001.tgz", "other.tgz")) {
+            Files.write(dir.resolve(name), new byte[0]);
+        }
+        List<Path> parts = TakeoutArchive.seriesOf(dir.resolve("takeout-20240101T000000Z-002.tgz"));
+        assertEquals(List.of(dir.resolve("takeout-20240101T000000Z-001.tgz"), dir.resolve("takeout-20240101T000000Z-002.tgz")), parts);
+        assertEquals(List.of(dir.resolve("other.tgz")), TakeoutArchive.seriesOf(dir.resolve("other.tgz")));
+        assertTrue(TakeoutArchive.isArchive(dir.resolve("other.tgz")));
+        assertFalse(TakeoutArchive.isArchive(dir.resolve("missing.zip")));
+    }
+}